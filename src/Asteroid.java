@@ -33,6 +33,14 @@ public class Asteroid extends GameObject {
 		// other objects collide with this asteroid. collidable is a field
 		// declared in GameObject.
 		setCollidable(true);
+
+		// Set the collision type, which tells the game which other objects
+		// this asteroid can collide with and how those collisions are handled.
+		setCollisionType(CollisionType.ASTEROID);
+
+		// Asteroids never move, so they can be drawn once into the cached
+		// background instead of at every frame.
+		setStatic(true);
 	}
 	
 	/**
@@ -7,7 +7,7 @@ import java.util.Random;
  */
 public class AsteroidEC extends Asteroid {	
 
-private Random rng = new Random();
+private Random rng = getGame().getRandom();
 
 	/**
 	 * Creates a new Asteroid at the location specified.
@@ -39,6 +39,9 @@ private Random rng = new Random();
 		// declared in GameObject.
 		setCollidable(true);
 		
+		// Unlike the asteroids of the classic game, these asteroids move
+		setStatic(false);
+		
 		setRotation(rng.nextDouble()*(2*Math.PI));
 		setSpeed(rng.nextDouble()* Config.ASTEROID_RADIUS[type]);
 	
@@ -52,23 +55,27 @@ private Random rng = new Random();
 	@Override
 	public void update(double deltaTime) {
 		
-		double xPos;
-		double yPos;
+		double xPos = getX();
+		double yPos = getY();
 		
-		if (getPosition().getX()
-		- Config.ASTEROID_RADIUS[1] < 0 || getPosition().getX() +
+		if (xPos
+		- Config.ASTEROID_RADIUS[1] < 0 || xPos +
 		Config.SHIP_RADIUS > Config.GAME_WIDTH) {
-			xPos = (wrap(Config.GAME_WIDTH, getPosition().getX()));
-		} else {xPos = getPosition().getX();}
+			xPos = (wrap(Config.GAME_WIDTH, xPos));
+		}
 		
 		
-		if (getPosition().getY() 
-		- Config.ASTEROID_RADIUS[1] < 0 || getPosition().getY() + 
+		if (yPos 
+		- Config.ASTEROID_RADIUS[1] < 0 || yPos + 
 		Config.SHIP_RADIUS > Config.GAME_HEIGHT){
-			yPos = (wrap(Config.GAME_HEIGHT, getPosition().getY()));
-		} else {yPos = getPosition().getY();}
+			yPos = (wrap(Config.GAME_HEIGHT, yPos));
+		}
 		
-		setPosition(xPos, yPos);
+		// Only move the asteroid if it wrapped around, so that it is still
+		// drawn smoothly between ticks
+		if (xPos != getX() || yPos != getY()) {
+			setPosition(xPos, yPos);
+		}
 		updatePosition(deltaTime);
 	
 		
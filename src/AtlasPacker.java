@@ -0,0 +1,188 @@
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Arranges rectangles, such as the images of sprites, on a few large pages
+ * without overlapping, so that many small images can be stored in a few large
+ * ones (texture atlases). The rectangles are placed on shelves: rows that are
+ * filled from left to right, tallest rectangles first, with a new row started
+ * below when a row is full and a new page started when a page is full.
+ * <p>
+ * A rectangle larger than a page is not placed on any page. Do not use this
+ * class directly in your code.
+ * </p>
+ */
+public class AtlasPacker {
+	/**
+	 * Empty pixels left between two rectangles, so that filtering at the edge
+	 * of one image never reads its neighbor.
+	 */
+	private static final int PADDING = 1;
+
+	/**
+	 * The maximum width and height of a page.
+	 */
+	private final int size;
+
+	/*
+	 * The size of each rectangle, and where it was placed.
+	 */
+	private int[] width = new int[16];
+	private int[] height = new int[16];
+	private int[] x = new int[16];
+	private int[] y = new int[16];
+	private int[] page = new int[16];
+	private int count = 0;
+
+	/*
+	 * The size of each page actually used.
+	 */
+	private int[] pageWidth = new int[0];
+	private int[] pageHeight = new int[0];
+
+	/**
+	 * Creates a packer for pages of at most {@code size} by {@code size}
+	 * pixels.
+	 *
+	 * @param size the maximum width and height of a page
+	 */
+	public AtlasPacker(int size) {
+		this.size = size;
+	}
+
+	/**
+	 * Adds a rectangle to be placed.
+	 *
+	 * @param w the width of the rectangle
+	 * @param h the height of the rectangle
+	 * @return the index of the rectangle.
+	 */
+	public int add(int w, int h) {
+		if (count == width.length) {
+			width = Arrays.copyOf(width, 2*count);
+			height = Arrays.copyOf(height, 2*count);
+			x = Arrays.copyOf(x, 2*count);
+			y = Arrays.copyOf(y, 2*count);
+			page = Arrays.copyOf(page, 2*count);
+		}
+		width[count] = w;
+		height[count] = h;
+		return count++;
+	}
+
+	/**
+	 * Places all the rectangles added so far.
+	 */
+	public void pack() {
+		// Sort the rectangles from tallest to shortest
+		Integer[] order = new Integer[count];
+		for (int i = 0; i < count; ++i) {
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				return height[b] - height[a];
+			}
+		});
+
+		int pages = 0;
+		int shelfX = 0, shelfY = 0, shelfHeight = 0;
+		int[] widths = new int[4], heights = new int[4];
+		for (int k = 0; k < count; ++k) {
+			int i = order[k];
+			if (width[i] > size || height[i] > size) {
+				page[i] = -1;
+				continue;
+			}
+
+			// Start a new shelf if this one is full, and a new page if there
+			// is no room for another shelf
+			if (pages > 0 && shelfX + width[i] > size) {
+				shelfX = 0;
+				shelfY += shelfHeight;
+				shelfHeight = 0;
+			}
+			if (pages == 0 || shelfY + height[i] > size) {
+				if (pages == widths.length) {
+					widths = Arrays.copyOf(widths, 2*pages);
+					heights = Arrays.copyOf(heights, 2*pages);
+				}
+				++pages;
+				shelfX = 0;
+				shelfY = 0;
+				shelfHeight = 0;
+			}
+
+			page[i] = pages - 1;
+			x[i] = shelfX;
+			y[i] = shelfY;
+			widths[pages - 1] = Math.max(widths[pages - 1], shelfX + width[i]);
+			heights[pages - 1] = Math.max(heights[pages - 1],
+					shelfY + height[i]);
+			shelfX += width[i] + PADDING;
+			shelfHeight = Math.max(shelfHeight, height[i] + PADDING);
+		}
+		pageWidth = Arrays.copyOf(widths, pages);
+		pageHeight = Arrays.copyOf(heights, pages);
+	}
+
+	/**
+	 * Returns the number of pages used.
+	 *
+	 * @return the number of pages.
+	 */
+	public int getPageCount() {
+		return pageWidth.length;
+	}
+
+	/**
+	 * Returns the width of a page, just large enough for its rectangles.
+	 *
+	 * @param p the index of the page
+	 * @return the width of the page.
+	 */
+	public int getPageWidth(int p) {
+		return pageWidth[p];
+	}
+
+	/**
+	 * Returns the height of a page, just large enough for its rectangles.
+	 *
+	 * @param p the index of the page
+	 * @return the height of the page.
+	 */
+	public int getPageHeight(int p) {
+		return pageHeight[p];
+	}
+
+	/**
+	 * Returns the page a rectangle was placed on.
+	 *
+	 * @param i the index of the rectangle
+	 * @return the index of the page, or -1 if the rectangle is larger than a
+	 * page.
+	 */
+	public int getPage(int i) {
+		return page[i];
+	}
+
+	/**
+	 * Returns the x coordinate of a rectangle on its page.
+	 *
+	 * @param i the index of the rectangle
+	 * @return the x coordinate of its left edge.
+	 */
+	public int getX(int i) {
+		return x[i];
+	}
+
+	/**
+	 * Returns the y coordinate of a rectangle on its page.
+	 *
+	 * @param i the index of the rectangle
+	 * @return the y coordinate of its top edge.
+	 */
+	public int getY(int i) {
+		return y[i];
+	}
+}
@@ -23,6 +23,8 @@ public class Base extends GameObject {
 		setImage(Config.BASE_IMG[playerID]);
 		setVisible(true);
 		setCollidable(true);
+		setCollisionType(CollisionType.BASE);
+		setStatic(true);
 		this.playerID = playerID;
 	}
 	
@@ -0,0 +1,233 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Plays many headless matches between two {@link Bot}s in parallel and
+ * reports the results. Each match runs on its own {@link Game} with its own
+ * virtual clock, so matches do not share any mutable state and a batch scales
+ * with the number of cores.
+ * <p>
+ * Usage: {@code java BatchRunner [-ec] [-matches N] [-threads N]
+ * [-maxticks N] [-seed N] [-record DIR]}. With {@code -record}, a replay of
+ * each match is written to {@code DIR} (see {@link ReplayPlayer}).
+ * </p>
+ */
+public class BatchRunner {
+	/**
+	 * Default maximum length of a match in ticks (one hour of game time).
+	 */
+	public static final long DEFAULT_MAX_TICKS = 3600L*Config.SIMULATION_RATE;
+
+	private final boolean extraCredit;
+	private final long maxTicks;
+	private final int threads;
+	private File replayDirectory = null;
+
+	/**
+	 * Creates a new batch runner.
+	 *
+	 * @param extraCredit {@code true} to play {@link GalacticCommanderEC}
+	 * instead of {@link GalacticCommander}
+	 * @param maxTicks the number of ticks after which a match is stopped if
+	 * nobody has won
+	 * @param threads the number of matches to play at the same time
+	 */
+	public BatchRunner(boolean extraCredit, long maxTicks, int threads) {
+		this.extraCredit = extraCredit;
+		this.maxTicks = maxTicks;
+		this.threads = threads;
+	}
+
+	/**
+	 * Records a replay of each match in the given directory, named after the
+	 * number of the match.
+	 *
+	 * @param directory the directory to write the replays to, or {@code
+	 * null} to not record the matches
+	 */
+	public void setReplayDirectory(File directory) {
+		replayDirectory = directory;
+	}
+
+	/**
+	 * Plays a batch of matches and waits for all of them to finish.
+	 *
+	 * @param matches the number of matches to play
+	 * @param seed the seed from which the seed of each match is chosen
+	 * @return the result of each match, in the order the matches were
+	 * started.
+	 * @throws InterruptedException if interrupted while waiting
+	 * @throws ExecutionException if a match failed
+	 */
+	public List<MatchResult> run(int matches, long seed)
+			throws InterruptedException, ExecutionException {
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			Random seeds = new Random(seed);
+			List<Future<MatchResult>> futures =
+				new ArrayList<Future<MatchResult>>();
+			for (int i = 0; i < matches; ++i) {
+				final long matchSeed = seeds.nextLong();
+				final File replay = replayDirectory == null ? null :
+					new File(replayDirectory, "match-" + (i+1) + ".replay");
+				futures.add(pool.submit(new Callable<MatchResult>() {
+					public MatchResult call() throws IOException {
+						return playMatch(extraCredit, matchSeed, maxTicks,
+								replay);
+					}
+				}));
+			}
+
+			List<MatchResult> results = new ArrayList<MatchResult>();
+			for (Future<MatchResult> future : futures) {
+				results.add(future.get());
+			}
+			return results;
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Plays a single headless match between two bots on the calling thread.
+	 *
+	 * @param extraCredit {@code true} to play {@link GalacticCommanderEC}
+	 * instead of {@link GalacticCommander}
+	 * @param seed the seed of the bots' and the game's random choices
+	 * @param maxTicks the number of ticks after which the match is stopped if
+	 * nobody has won
+	 * @return the result of the match.
+	 * @throws IOException if the game could not be created
+	 */
+	public static MatchResult playMatch(boolean extraCredit, long seed,
+			long maxTicks) throws IOException {
+		return playMatch(extraCredit, seed, maxTicks, null);
+	}
+
+	/**
+	 * Plays a single headless match between two bots on the calling thread,
+	 * and records it.
+	 *
+	 * @param extraCredit {@code true} to play {@link GalacticCommanderEC}
+	 * instead of {@link GalacticCommander}
+	 * @param seed the seed of the bots' and the game's random choices
+	 * @param maxTicks the number of ticks after which the match is stopped if
+	 * nobody has won
+	 * @param replay the file to record the match to, or {@code null} to not
+	 * record it
+	 * @return the result of the match.
+	 * @throws IOException if the game could not be created or the replay
+	 * could not be written
+	 */
+	public static MatchResult playMatch(boolean extraCredit, long seed,
+			long maxTicks, File replay) throws IOException {
+		long start = System.nanoTime();
+
+		Random seeds = new Random(seed);
+		Bot bot1 = new Bot(Config.PLAYER1_ID, seeds.nextLong());
+		Bot bot2 = new Bot(Config.PLAYER2_ID, seeds.nextLong());
+		Game game;
+		if (extraCredit) {
+			game = new GalacticCommanderEC(true, seeds.nextLong());
+		} else {
+			game = new GalacticCommander(true, seeds.nextLong());
+		}
+		game.addInputSource(bot1);
+		game.addInputSource(bot2);
+		game.initGame();
+		if (replay != null) {
+			game.startRecording(new ReplayRecorder(replay, game));
+		}
+
+		double deltaTime = 1.0/Config.SIMULATION_RATE;
+		while (!game.hasEnded() && game.getTicks() < maxTicks) {
+			game.step(deltaTime);
+		}
+		game.stopRecording();
+
+		int score1 = game.getScore(Config.PLAYER1_ID);
+		int score2 = game.getScore(Config.PLAYER2_ID);
+		int winner = MatchResult.NO_WINNER;
+		if (score1 >= Config.POINTS_TO_WIN) {
+			winner = Config.PLAYER1_ID;
+		} else if (score2 >= Config.POINTS_TO_WIN) {
+			winner = Config.PLAYER2_ID;
+		}
+
+		return new MatchResult(winner, score1, score2, game.getTicks(),
+				System.nanoTime() - start);
+	}
+
+	/**
+	 * Plays a batch of matches and prints the results.
+	 *
+	 * @param args see the class description
+	 * @throws Exception if a match failed
+	 */
+	public static void main(String[] args) throws Exception {
+		boolean extraCredit = false;
+		int matches = 100;
+		int threads = Runtime.getRuntime().availableProcessors();
+		long maxTicks = DEFAULT_MAX_TICKS;
+		long seed = System.nanoTime();
+		File replayDirectory = null;
+
+		for (int i = 0; i < args.length; ++i) {
+			if (args[i].equals("-ec")) {
+				extraCredit = true;
+			} else if (args[i].equals("-matches") && i+1 < args.length) {
+				matches = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-threads") && i+1 < args.length) {
+				threads = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-maxticks") && i+1 < args.length) {
+				maxTicks = Long.parseLong(args[++i]);
+			} else if (args[i].equals("-seed") && i+1 < args.length) {
+				seed = Long.parseLong(args[++i]);
+			} else if (args[i].equals("-record") && i+1 < args.length) {
+				replayDirectory = new File(args[++i]);
+				replayDirectory.mkdirs();
+			} else {
+				System.err.println("Usage: java BatchRunner [-ec] " +
+						"[-matches N] [-threads N] [-maxticks N] [-seed N] " +
+						"[-record DIR]");
+				System.exit(1);
+			}
+		}
+
+		long start = System.nanoTime();
+		BatchRunner runner = new BatchRunner(extraCredit, maxTicks, threads);
+		runner.setReplayDirectory(replayDirectory);
+		List<MatchResult> results = runner.run(matches, seed);
+		double seconds = (System.nanoTime() - start)/1e9;
+
+		int[] wins = new int[2];
+		int noWinner = 0;
+		long ticks = 0;
+		for (int i = 0; i < results.size(); ++i) {
+			MatchResult result = results.get(i);
+			System.out.println("Match " + (i+1) + ": " + result);
+			if (result.getWinner() == MatchResult.NO_WINNER) {
+				++noWinner;
+			} else {
+				++wins[result.getWinner()];
+			}
+			ticks += result.getTicks();
+		}
+
+		System.out.println();
+		System.out.println("Player 1 wins: " + wins[Config.PLAYER1_ID]);
+		System.out.println("Player 2 wins: " + wins[Config.PLAYER2_ID]);
+		System.out.println("No winner:     " + noWinner);
+		System.out.printf("%d matches on %d threads in %.2f s: " +
+				"%.1f matches/s, %.0f ticks/s%n", results.size(), threads,
+				seconds, results.size()/seconds, ticks/seconds);
+	}
+}
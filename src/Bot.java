@@ -0,0 +1,238 @@
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * A simple computer player. The bot flies its ship toward the opponent's flag,
+ * carries the flag back to its own base, steers around asteroids that are in
+ * the way, and fires at the opponent's ship whenever it is lined up. Every so
+ * often it mashes random keys for a moment, so that no two matches are alike.
+ * <p>
+ * Add one bot per player to a game using {@link
+ * Game#addInputSource(InputSource)}.
+ * </p>
+ */
+public class Bot implements InputSource {
+	/*
+	 * The keys controlling each player's ship, indexed by player ID.
+	 */
+	private static final int[] LEFT_KEY =
+		{Keyboard.BUTTON_A, Keyboard.BUTTON_LEFT};
+	private static final int[] RIGHT_KEY =
+		{Keyboard.BUTTON_D, Keyboard.BUTTON_RIGHT};
+	private static final int[] THRUST_KEY =
+		{Keyboard.BUTTON_W, Keyboard.BUTTON_UP};
+	private static final int[] REVERSE_KEY =
+		{Keyboard.BUTTON_S, Keyboard.BUTTON_DOWN};
+	private static final int[] FIRE_KEY =
+		{Keyboard.BUTTON_LSHIFT, Keyboard.BUTTON_ENTER};
+
+	/**
+	 * Angle in radians the ship may be off course before it turns.
+	 */
+	private static final double TURN_TOLERANCE = 0.1;
+
+	/**
+	 * Angle in radians the opponent may be off the ship's heading for the
+	 * bot to fire at it.
+	 */
+	private static final double AIM_TOLERANCE = 0.08;
+
+	/**
+	 * Clearance in pixels the bot keeps from asteroids.
+	 */
+	private static final double ASTEROID_CLEARANCE = 30;
+
+	/**
+	 * Chance per tick that the bot starts pressing random keys.
+	 */
+	private static final double RANDOM_CHANCE = 0.005;
+
+	private final int playerID;
+	private final Random rng;
+
+	private Ship ship;
+	private Ship enemyShip;
+	private Flag enemyFlag;
+	private Base base;
+	private ArrayList<Asteroid> asteroids = new ArrayList<Asteroid>();
+
+	private int randomTicks = 0;
+	private int randomButtons = 0;
+
+	/**
+	 * Creates a bot for the given player.
+	 *
+	 * @param playerID the player controlled by this bot, one of {@code
+	 * Config.PLAYER1_ID} or {@code Config.PLAYER2_ID}.
+	 * @param seed the seed of the bot's random choices
+	 */
+	public Bot(int playerID, long seed) {
+		this.playerID = playerID;
+		this.rng = new Random(seed);
+	}
+
+	public int getButtons(Game game) {
+		if (ship == null) {
+			findObjects(game);
+		}
+		if (ship == null || ship.getState() == Ship.DESTROYED) {
+			return 0;
+		}
+
+		// Keep pressing random keys for a while
+		if (randomTicks > 0) {
+			--randomTicks;
+			return randomButtons;
+		}
+		if (rng.nextDouble() < RANDOM_CHANCE) {
+			randomTicks = rng.nextInt(50);
+			randomButtons = randomKeys();
+			return randomButtons;
+		}
+
+		int buttons = 0;
+		Position here = ship.getPosition();
+
+		// Fly toward the flag, or home once it's been picked up
+		Position target;
+		if (ship.getState() == Ship.SCORING) {
+			target = base.getPosition();
+		} else {
+			target = enemyFlag.getPosition();
+		}
+		target = avoidAsteroids(here, target);
+
+		double dx = target.getX() - here.getX();
+		double dy = target.getY() - here.getY();
+		double distance = Math.sqrt(dx*dx + dy*dy);
+		double offCourse = angleTo(dx, dy);
+
+		if (offCourse > TURN_TOLERANCE) {
+			buttons |= RIGHT_KEY[playerID];
+		} else if (offCourse < -TURN_TOLERANCE) {
+			buttons |= LEFT_KEY[playerID];
+		}
+
+		// Speed up when heading the right way, and slow down when getting
+		// close or when heading the wrong way
+		double targetSpeed = 0;
+		if (Math.abs(offCourse) < 0.4) {
+			targetSpeed = Math.min(Config.SHIP_MAX_SPEED, 60 + distance);
+		}
+		if (ship.getSpeed() < targetSpeed - 10) {
+			buttons |= THRUST_KEY[playerID];
+		} else if (ship.getSpeed() > targetSpeed + 10) {
+			buttons |= REVERSE_KEY[playerID];
+		}
+
+		// Shoot at the enemy if it's lined up. Firing while carrying the flag
+		// would drop it.
+		if (ship.getState() == Ship.CAPTURING &&
+				enemyShip.getState() != Ship.DESTROYED) {
+			Position enemy = enemyShip.getPosition();
+			double aim = angleTo(enemy.getX() - here.getX(),
+					enemy.getY() - here.getY());
+			if (Math.abs(aim) < AIM_TOLERANCE) {
+				buttons |= FIRE_KEY[playerID];
+			}
+		}
+
+		return buttons;
+	}
+
+	/**
+	 * Returns the angle the ship has to turn through to face in the direction
+	 * (dx, dy), between -pi and pi.
+	 */
+	private double angleTo(double dx, double dy) {
+		return Math.IEEEremainder(Math.atan2(dy, dx) - ship.getRotation(),
+				2*Math.PI);
+	}
+
+	/**
+	 * If an asteroid is in the way between {@code here} and {@code target},
+	 * returns a point beside the nearest such asteroid to fly to instead.
+	 * Otherwise returns {@code target}.
+	 */
+	private Position avoidAsteroids(Position here, Position target) {
+		double dx = target.getX() - here.getX();
+		double dy = target.getY() - here.getY();
+		double length = Math.sqrt(dx*dx + dy*dy);
+		if (length == 0) {
+			return target;
+		}
+		dx /= length;
+		dy /= length;
+
+		Asteroid nearest = null;
+		double nearestAlong = length;
+		double nearestSide = 0;
+		for (Asteroid a : asteroids) {
+			double ax = a.getX() - here.getX(), ay = a.getY() - here.getY();
+			// Distance along and to the side of the path
+			double along = ax*dx + ay*dy;
+			double side = ax*dy - ay*dx;
+			double clearance = a.getRadius() + ship.getRadius() +
+				ASTEROID_CLEARANCE;
+			if (along > 0 && along < nearestAlong &&
+					Math.abs(side) < clearance) {
+				nearest = a;
+				nearestAlong = along;
+				nearestSide = side;
+			}
+		}
+		if (nearest == null) {
+			return target;
+		}
+
+		// Pass the asteroid on the side the path is already closer to
+		Position p = nearest.getPosition();
+		double offset = nearest.getRadius() + ship.getRadius() +
+			2*ASTEROID_CLEARANCE;
+		if (nearestSide > 0) {
+			offset = -offset;
+		}
+		return new Position(p.getX() + offset*dy, p.getY() - offset*dx);
+	}
+
+	/**
+	 * Returns a random combination of this player's keys.
+	 */
+	private int randomKeys() {
+		int buttons = 0;
+		if (rng.nextBoolean()) buttons |= LEFT_KEY[playerID];
+		if (rng.nextBoolean()) buttons |= RIGHT_KEY[playerID];
+		if (rng.nextBoolean()) buttons |= THRUST_KEY[playerID];
+		if (rng.nextBoolean()) buttons |= REVERSE_KEY[playerID];
+		if (rng.nextBoolean()) buttons |= FIRE_KEY[playerID];
+		return buttons;
+	}
+
+	/**
+	 * Finds the objects the bot cares about among the game's objects.
+	 */
+	private void findObjects(Game game) {
+		for (GameObject o : game.getGameObjects()) {
+			if (o instanceof Ship) {
+				Ship s = (Ship) o;
+				if (s.getPlayerID() == playerID) {
+					ship = s;
+				} else {
+					enemyShip = s;
+				}
+			} else if (o instanceof Flag) {
+				Flag f = (Flag) o;
+				if (f.getPlayerID() != playerID) {
+					enemyFlag = f;
+				}
+			} else if (o instanceof Base) {
+				Base b = (Base) o;
+				if (b.getPlayerID() == playerID) {
+					base = b;
+				}
+			} else if (o instanceof Asteroid) {
+				asteroids.add((Asteroid) o);
+			}
+		}
+	}
+}
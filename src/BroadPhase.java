@@ -0,0 +1,34 @@
+/**
+ * A broad-phase collision detection algorithm. Given the state of the game
+ * objects, a broad phase quickly finds the pairs of objects whose bounding
+ * boxes overlap. Only these candidate pairs are passed on to the (more
+ * expensive) {@link GameObject#collidesWith(GameObject)} test, so the game no
+ * longer has to test every object against every other object at every tick.
+ * <p>
+ * Do not use this interface directly in your code. The game picks a broad
+ * phase at startup according to {@link Config#BROAD_PHASE}.
+ * </p>
+ */
+public interface BroadPhase {
+	/**
+	 * Finds every pair of game objects whose bounding boxes overlap and adds
+	 * it to {@code pairs}. Each pair is reported exactly once, as the indices
+	 * of the two objects in {@code entities}. The pairs must be sorted (see
+	 * {@link CollisionPairs#sort()}) so that collisions are handled in the
+	 * same order regardless of which broad phase is used.
+	 * <p>
+	 * The bounding box of an object covers both its previous and its current
+	 * position (see {@link EntityStore#boundingBox(int, double[])}), so that
+	 * fast objects are paired with everything they passed during the tick.
+	 * </p>
+	 * <p>
+	 * Whether an object is collidable is NOT checked here; the game does that
+	 * when it handles each pair, because an object can stop (or start) being
+	 * collidable while collisions are being handled.
+	 * </p>
+	 *
+	 * @param entities the state of all of the objects in the game.
+	 * @param pairs an empty list that receives the candidate pairs.
+	 */
+	void findPairs(EntityStore entities, CollisionPairs pairs);
+}
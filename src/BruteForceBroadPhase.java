@@ -0,0 +1,15 @@
+/**
+ * The simplest possible broad phase: every object is paired with every other
+ * object. This costs O(n<sup>2</sup>) per tick, but it has no overhead and is
+ * the fastest choice when there are only a handful of objects in the game.
+ */
+public class BruteForceBroadPhase implements BroadPhase {
+	public void findPairs(EntityStore entities, CollisionPairs pairs) {
+		int n = entities.size();
+		for (int i = 0; i < n; ++i) {
+			for (int j = i+1; j < n; ++j) {
+				pairs.add(i, j);
+			}
+		}
+	}
+}
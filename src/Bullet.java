@@ -13,12 +13,18 @@ public class Bullet extends GameObject {
     // Declare additional class variables here if necessary. Remember that all
 	// class variables you add must be declared private!
 	
+	// True while this bullet is waiting in a BulletPool to be fired again
+	private boolean pooled = false;
 	
 	/**
 	 * Creates a new bullet at the given position traveling in the given
 	 * direction. The bullet's speed is set to {@code Config.BULLET_SPEED}, its
 	 * image is set to {@code Config.BULLET_IMG}, and it is made visible and
 	 * collidable.
+	 * <p>
+	 * Ships do not create bullets directly; they take them from the game's
+	 * {@link BulletPool}.
+	 * </p>
 	 * 
 	 * @param game the parent {@link Game}
 	 * @param position the initial position
@@ -26,13 +32,41 @@ public class Bullet extends GameObject {
 	 */
     public Bullet(Game game, Position position, double rotation) {
         super(game, position, Config.BULLET_RADIUS);
+		setCollisionType(CollisionType.BULLET);
+		reset(position.getX(), position.getY(), rotation);
+    }
+
+	/**
+	 * Puts this bullet back into the state of a newly created bullet at the
+	 * given position and traveling in the given direction. Called by the
+	 * {@link BulletPool} when the bullet is fired again.
+	 * 
+	 * @param x the initial x coordinate
+	 * @param y the initial y coordinate
+	 * @param rotation the direction of travel
+	 */
+	void reset(double x, double y, double rotation) {
         setImage(Config.BULLET_IMG);
 		setVisible(true);
 		setCollidable(true);
-		setPosition(position);
+		setPosition(x, y);
 		setRotation(rotation);
 		setSpeed(Config.BULLET_SPEED);
-    }
+	}
+
+	/**
+	 * Returns {@code true} while this bullet is in a {@link BulletPool}.
+	 */
+	boolean isPooled() {
+		return pooled;
+	}
+
+	/**
+	 * Marks whether this bullet is in a {@link BulletPool}.
+	 */
+	void setPooled(boolean pooled) {
+		this.pooled = pooled;
+	}
    
     /**
      * Called automatically at each game tick to handle game logic. At each game
@@ -51,14 +85,15 @@ public class Bullet extends GameObject {
         // removed from the game. This is different from ships! A ship is
         // destroyed if it collides with the boundary of the playing field. A
         // bullet is removed from the game if it leaves the playing field.
-    	Position BulletPos = getPosition();  
-    	if( (BulletPos.getX() - Config.BULLET_RADIUS < 0) || 
-    			(BulletPos.getX() + Config.BULLET_RADIUS > Config.GAME_WIDTH)){
+    	double xPos = getX();
+    	double yPos = getY();
+    	if( (xPos - Config.BULLET_RADIUS < 0) || 
+    			(xPos + Config.BULLET_RADIUS > Config.GAME_WIDTH)){
     		getGame().removeGameObject(this);
     	}
         
-    	if( (BulletPos.getY() - Config.BULLET_RADIUS < 0) || 
-    			(BulletPos.getY() + Config.BULLET_RADIUS > Config.GAME_HEIGHT)){
+    	if( (yPos - Config.BULLET_RADIUS < 0) || 
+    			(yPos + Config.BULLET_RADIUS > Config.GAME_HEIGHT)){
     		getGame().removeGameObject(this);
     	}
     	
@@ -0,0 +1,162 @@
+import java.util.ArrayList;
+
+/**
+ * Keeps bullets that have been removed from the game so that they can be
+ * fired again instead of creating a new {@link Bullet} for every shot. Each
+ * {@link Game} has its own pool; ships take bullets from it with {@link
+ * #acquire(double, double, double)}, and the game puts each bullet back when
+ * it is removed.
+ * <p>
+ * At most {@code Config.BULLET_POOL_SIZE} bullets are kept. Bullets released
+ * into a full pool are left to the garbage collector.
+ * </p>
+ */
+public class BulletPool {
+	private final Game game;
+
+	/**
+	 * The bullets that are ready to be fired again.
+	 */
+	private final ArrayList<Bullet> free = new ArrayList<Bullet>();
+
+	/*
+	 * Statistics
+	 */
+	private long created = 0;
+	private long reused = 0;
+	private long released = 0;
+	private long discarded = 0;
+	private int inUse = 0;
+	private int peakInUse = 0;
+
+	/**
+	 * Creates an empty pool of bullets for the given game.
+	 *
+	 * @param game the {@link Game} the bullets belong to
+	 */
+	public BulletPool(Game game) {
+		this.game = game;
+	}
+
+	/**
+	 * Returns a bullet at the given position traveling in the given direction,
+	 * reusing a released bullet if there is one. The bullet is in the same
+	 * state as a newly created one, but it has not been added to the game.
+	 *
+	 * @param x the initial x coordinate
+	 * @param y the initial y coordinate
+	 * @param rotation the direction of travel
+	 * @return a {@link Bullet} ready to be added to the game.
+	 */
+	public Bullet acquire(double x, double y, double rotation) {
+		Bullet bullet;
+		if (free.isEmpty()) {
+			bullet = new Bullet(game, new Position(x, y), rotation);
+			++created;
+		} else {
+			bullet = free.remove(free.size() - 1);
+			bullet.reset(x, y, rotation);
+			++reused;
+		}
+		bullet.setPooled(false);
+
+		++inUse;
+		peakInUse = Math.max(peakInUse, inUse);
+		return bullet;
+	}
+
+	/**
+	 * Returns a bullet that has been removed from the game to the pool.
+	 * Releasing a bullet that is already in the pool does nothing.
+	 *
+	 * @param bullet the {@link Bullet} to release
+	 */
+	public void release(Bullet bullet) {
+		if (bullet.isPooled()) {
+			return;
+		}
+		bullet.setPooled(true);
+		if (inUse > 0) {
+			--inUse;
+		}
+		++released;
+
+		if (free.size() < Config.BULLET_POOL_SIZE) {
+			free.add(bullet);
+		} else {
+			++discarded;
+		}
+	}
+
+	/**
+	 * Returns the number of bullets that had to be created because the pool
+	 * was empty.
+	 *
+	 * @return the number of bullets created.
+	 */
+	public long getCreated() {
+		return created;
+	}
+
+	/**
+	 * Returns the number of times a released bullet was fired again.
+	 *
+	 * @return the number of bullets reused.
+	 */
+	public long getReused() {
+		return reused;
+	}
+
+	/**
+	 * Returns the number of bullets released into the pool.
+	 *
+	 * @return the number of bullets released.
+	 */
+	public long getReleased() {
+		return released;
+	}
+
+	/**
+	 * Returns the number of released bullets that were dropped because the
+	 * pool was full.
+	 *
+	 * @return the number of bullets discarded.
+	 */
+	public long getDiscarded() {
+		return discarded;
+	}
+
+	/**
+	 * Returns the number of bullets that are ready to be reused.
+	 *
+	 * @return the number of bullets in the pool.
+	 */
+	public int getAvailable() {
+		return free.size();
+	}
+
+	/**
+	 * Returns the number of bullets acquired from the pool that have not been
+	 * released yet.
+	 *
+	 * @return the number of bullets in use.
+	 */
+	public int getInUse() {
+		return inUse;
+	}
+
+	/**
+	 * Returns the largest number of bullets that were in use at once.
+	 *
+	 * @return the peak number of bullets in use.
+	 */
+	public int getPeakInUse() {
+		return peakInUse;
+	}
+
+	public String toString() {
+		return "created " + created + ", reused " + reused + ", released " +
+			released + ", discarded " + discarded + ", available " +
+			free.size() + ", in use " + inUse + " (peak " + peakInUse + ")";
+	}
+}
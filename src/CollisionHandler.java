@@ -0,0 +1,15 @@
+/**
+ * Handles a collision between two game objects of particular
+ * {@link CollisionType collision types}. The game keeps a table of handlers
+ * indexed by the types of the two objects, so dispatching a collision is a
+ * simple table lookup.
+ */
+public interface CollisionHandler {
+	/**
+	 * Lets {@code a} handle its collision with {@code b}.
+	 *
+	 * @param a the object handling the collision
+	 * @param b the object {@code a} collided with
+	 */
+	void collide(GameObject a, GameObject b);
+}
@@ -0,0 +1,84 @@
+import java.util.Arrays;
+
+/**
+ * A reusable list of candidate collision pairs produced by a
+ * {@link BroadPhase}. Each pair is stored as the indices of two game objects,
+ * packed into a single {@code long} so that the list never allocates once it
+ * has grown large enough.
+ */
+public class CollisionPairs {
+	/**
+	 * The packed pairs. The first (smaller) index is stored in the upper 32
+	 * bits, so sorting the packed values sorts the pairs by first index and
+	 * then by second index.
+	 */
+	private long[] pairs = new long[64];
+
+	/**
+	 * Number of pairs currently in the list.
+	 */
+	private int size = 0;
+
+	/**
+	 * Removes all pairs from the list.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Adds the pair of objects with indices {@code i} and {@code j} to the
+	 * list. The order of the two indices does not matter.
+	 *
+	 * @param i the index of one object
+	 * @param j the index of the other object
+	 */
+	public void add(int i, int j) {
+		if (size == pairs.length) {
+			pairs = Arrays.copyOf(pairs, 2*pairs.length);
+		}
+		if (i > j) {
+			int tmp = i;
+			i = j;
+			j = tmp;
+		}
+		pairs[size++] = ((long) i << 32) | j;
+	}
+
+	/**
+	 * Sorts the pairs by first index and then by second index. This is the
+	 * order in which a simple double loop over the objects would find them.
+	 */
+	public void sort() {
+		Arrays.sort(pairs, 0, size);
+	}
+
+	/**
+	 * Returns the number of pairs in the list.
+	 *
+	 * @return the number of pairs.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the smaller object index of the {@code k}th pair.
+	 *
+	 * @param k the index of the pair
+	 * @return the index of the first object in the pair.
+	 */
+	public int getFirst(int k) {
+		return (int) (pairs[k] >>> 32);
+	}
+
+	/**
+	 * Returns the larger object index of the {@code k}th pair.
+	 *
+	 * @param k the index of the pair
+	 * @return the index of the second object in the pair.
+	 */
+	public int getSecond(int k) {
+		return (int) pairs[k];
+	}
+}
@@ -0,0 +1,94 @@
+/**
+ * Defines the collision type of each kind of game object, along with the
+ * collision layers and masks used to decide which types can collide.
+ * <p>
+ * Each type has its own layer, which is a single bit. An object's collision
+ * mask has the bits of all layers it can collide with set. The game only
+ * checks two objects for a collision if the layer of one is in the mask of the
+ * other, so pairs that can never interact (e.g., two asteroids) are skipped
+ * without doing any geometry.
+ * </p>
+ */
+public class CollisionType {
+	/**
+	 * Type of objects that do not collide with anything.
+	 */
+	public static final int NONE     = -1;
+
+	/**
+	 * Type of a {@link Ship}.
+	 */
+	public static final int SHIP     = 0;
+
+	/**
+	 * Type of a {@link Bullet}.
+	 */
+	public static final int BULLET   = 1;
+
+	/**
+	 * Type of a {@link Flag}.
+	 */
+	public static final int FLAG     = 2;
+
+	/**
+	 * Type of a {@link Base}.
+	 */
+	public static final int BASE     = 3;
+
+	/**
+	 * Type of an {@link Asteroid}.
+	 */
+	public static final int ASTEROID = 4;
+
+	/**
+	 * Number of collision types (not counting {@code NONE}).
+	 */
+	public static final int COUNT    = 5;
+
+	/**
+	 * Default collision mask of each type, indexed by type.
+	 */
+	private static final int[] DEFAULT_MASK = {
+		// SHIP
+		layer(SHIP) | layer(BULLET) | layer(FLAG) | layer(BASE) |
+			layer(ASTEROID),
+		// BULLET
+		layer(SHIP) | layer(ASTEROID),
+		// FLAG
+		layer(SHIP),
+		// BASE
+		layer(SHIP),
+		// ASTEROID
+		layer(SHIP) | layer(BULLET)
+	};
+
+	// Prevent anybody from instantiating this class
+	private CollisionType() { }
+
+	/**
+	 * Returns the collision layer of the given type.
+	 *
+	 * @param type one of the types defined in this class
+	 * @return the layer bit of the type, or 0 for {@code NONE}.
+	 */
+	public static int layer(int type) {
+		if (type == NONE) {
+			return 0;
+		}
+		return 1 << type;
+	}
+
+	/**
+	 * Returns the default collision mask of the given type, i.e., the layers
+	 * of all types it can collide with.
+	 *
+	 * @param type one of the types defined in this class
+	 * @return the default collision mask, or 0 for {@code NONE}.
+	 */
+	public static int defaultMask(int type) {
+		if (type == NONE) {
+			return 0;
+		}
+		return DEFAULT_MASK[type];
+	}
+}
@@ -240,6 +240,188 @@ public class Config {
 		new Position(GAME_WIDTH/2, GAME_HEIGHT/2),
 		new Position(GAME_WIDTH/2+160, GAME_HEIGHT/2+160)
     };
+
+	/*
+	 * ENGINE CONSTANTS
+	 */
+
+	/**
+	 * Broad-phase collision detection used by the game: {@code "brute"} tests
+	 * every pair of objects, {@code "grid"} uses a uniform spatial hash grid,
+	 * and {@code "sweep"} uses sweep and prune.
+	 */
+	public static final String BROAD_PHASE = "grid";
+
+	/**
+	 * If true, the game is simulated in ticks of a fixed length and drawn in
+	 * between ticks. If false, each tick simulates the time since the
+	 * previous one and the game is drawn after each tick.
+	 */
+	public static final boolean FIXED_TIMESTEP = true;
+
+	/**
+	 * Number of ticks simulated per second when using a fixed timestep. The
+	 * durations of {@link TickTimer}s are counted in ticks of this rate in
+	 * either mode.
+	 */
+	public static final int SIMULATION_RATE = 100;
+
+	/**
+	 * Number of ticks per second when not using a fixed timestep. Each tick
+	 * is also a frame. This only paces the game loop: durations of {@link
+	 * TickTimer}s are always converted with {@code SIMULATION_RATE}, and the
+	 * timers are advanced by the time simulated in each tick, so they last
+	 * just as long whatever this rate is.
+	 */
+	public static final int TICK_RATE = 100;
+
+	/**
+	 * Number of frames drawn per second when using a fixed timestep.
+	 */
+	public static final int FRAME_RATE = 60;
+
+	/**
+	 * Maximum number of ticks simulated before each frame when using a fixed
+	 * timestep. If the game falls further behind than this, e.g. after a slow
+	 * frame, the rest of the missed time is skipped.
+	 */
+	public static final int MAX_CATCHUP_TICKS = 5;
+
+	/**
+	 * If true, the game is drawn on a separate thread from snapshots that the
+	 * game loop publishes after each tick, so that drawing overlaps with the
+	 * simulation. If false, the game loop draws each frame itself.
+	 */
+	public static final boolean RENDER_THREAD = false;
+
+	/**
+	 * Time in ns before the next frame at which the game loop stops sleeping
+	 * and parks the thread instead, to make up for sleep waking up late.
+	 */
+	public static final long SCHEDULER_SLEEP_MARGIN = 2000000L;
+
+	/**
+	 * Time in ns before the next frame at which the game loop stops parking
+	 * the thread and spins instead.
+	 */
+	public static final long SCHEDULER_SPIN_MARGIN = 100000L;
+
+	/**
+	 * If true, the state of the game objects is kept in an {@link EntityStore}
+	 * (one primitive array per field) instead of in each object, so that the
+	 * simulation reads it from memory in order.
+	 */
+	public static final boolean ENTITY_STORE = true;
+
+	/**
+	 * If true, objects that move far during a single tick, such as bullets,
+	 * are tested for collisions along the whole path they moved along, so that
+	 * they cannot pass through other objects when ticks are long.
+	 */
+	public static final boolean SWEPT_COLLISIONS = true;
+
+	/**
+	 * Maximum number of removed bullets each game keeps in its {@link
+	 * BulletPool} to fire again.
+	 */
+	public static final int BULLET_POOL_SIZE = 64;
+
+	/**
+	 * Number of angles at which rotated sprites are drawn. Each sprite is
+	 * rotated to the nearest of these angles, and the rotated image is cached
+	 * instead of being rotated again every frame. If zero, sprites are rotated
+	 * exactly when they are drawn.
+	 */
+	public static final int SPRITE_ROTATIONS = 256;
+
+	/**
+	 * Maximum memory in bytes used by cached rotated sprites. When it is
+	 * exceeded, the rotations rendered longest ago are discarded.
+	 */
+	public static final long SPRITE_CACHE_BYTES = 32L*1024*1024;
+
+	/**
+	 * If true, every image named in this class is decoded before the game
+	 * starts, so that no image is decoded while the game is running.
+	 */
+	public static final boolean PRELOAD_IMAGES = true;
+
+	/**
+	 * Maximum width and height of the texture atlases the preloaded images
+	 * are packed into.
+	 */
+	public static final int ATLAS_SIZE = 2048;
+
+	/**
+	 * If true, decoded images are kept on disk in {@code IMAGE_CACHE_DIR}, so
+	 * that later runs can map them into memory instead of decoding them. The
+	 * cache is off by default, since it creates that directory in the user's
+	 * home directory; set this to true to turn it on. Once the images are
+	 * preloaded, entries in the directory that no image refers to are
+	 * deleted, so it must not be used for anything else.
+	 */
+	public static final boolean IMAGE_CACHE = false;
+
+	/**
+	 * Directory of the cache of decoded images. It is kept in the user's home
+	 * directory rather than in a shared temporary directory, where other
+	 * users could create it first and plant images of their own.
+	 */
+	public static final String IMAGE_CACHE_DIR = new java.io.File(
+			System.getProperty("user.home"),
+			".galactic-commander/images").getPath();
+
+	/**
+	 * TCP port a {@link GameServer} listens on by default.
+	 */
+	public static final int SERVER_PORT = 7777;
+
+	/**
+	 * Maximum number of bytes a {@link GameServer} queues for a client that
+	 * reads too slowly. Whole states are dropped once this is reached, so a
+	 * slow client skips ahead instead of falling further behind.
+	 */
+	public static final int SERVER_MAX_BACKLOG = 64*1024;
+
+	/**
+	 * Maximum number of inputs a {@link GameServer} holds for each player.
+	 * The server applies one input per tick, so this bounds how far a
+	 * player's inputs can lag behind; the oldest input is dropped once it is
+	 * reached.
+	 */
+	public static final int SERVER_INPUT_QUEUE = 8;
+
+	/**
+	 * Number of ticks a state sent by a {@link GameServer} can be used as the
+	 * baseline of later states. A client that has not acknowledged any state
+	 * sent during this many ticks is sent the whole state.
+	 */
+	public static final int SNAPSHOT_HISTORY = 32;
+
+	/**
+	 * Number of inputs a {@link GameClient} remembers to replay when the
+	 * server corrects its predicted ship.
+	 */
+	public static final int PREDICTION_HISTORY = 256;
+
+	/**
+	 * Fraction of the correction of a predicted ship that is still shown
+	 * after each tick. Corrections fade out instead of making the ship jump.
+	 */
+	public static final double PREDICTION_SMOOTHING = 0.85;
+
+	/**
+	 * Corrections larger than this many pixels, e.g. when the ship was
+	 * destroyed or wrapped around, are shown at once instead of faded out.
+	 */
+	public static final double PREDICTION_SNAP_DISTANCE = 100;
+
+	/**
+	 * Number of ticks between the keyframes of a replay. Seeking in a replay
+	 * restores the keyframe before the tick sought and simulates the rest, so
+	 * a seek simulates at most this many ticks.
+	 */
+	public static final int REPLAY_KEYFRAME_INTERVAL = 10*SIMULATION_RATE;
 	
 	/*
 	 * DEBUG FLAGS
@@ -254,4 +436,10 @@ public class Config {
 	 * If true, the bounding circle for each object will be drawn on the screen.
 	 */
 	public static final boolean DRAW_BOUNDS = false;
+
+	/**
+	 * If true, statistics of the time between frames are printed to the
+	 * console once per second.
+	 */
+	public static final boolean PRINT_FRAME_TIMING = false;
 }
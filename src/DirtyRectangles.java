@@ -0,0 +1,93 @@
+import java.awt.Rectangle;
+import java.util.Arrays;
+
+/**
+ * A list of screen rectangles that have to be redrawn, stored in arrays so
+ * that collecting them every frame does not create any objects. Do not use
+ * this class directly in your code.
+ */
+public class DirtyRectangles {
+	private int[] x = new int[16], y = new int[16];
+	private int[] width = new int[16], height = new int[16];
+	private int size = 0;
+
+	/**
+	 * Returns the number of rectangles in the list.
+	 *
+	 * @return the number of rectangles.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Adds a rectangle to the list.
+	 *
+	 * @param r the rectangle to add
+	 */
+	public void add(Rectangle r) {
+		add(r.x, r.y, r.width, r.height);
+	}
+
+	/**
+	 * Adds all rectangles of another list to this one.
+	 *
+	 * @param other the rectangles to add
+	 */
+	public void addAll(DirtyRectangles other) {
+		for (int i = 0; i < other.size; ++i) {
+			add(other.x[i], other.y[i], other.width[i], other.height[i]);
+		}
+	}
+
+	// Adds the rectangle with the given corner and size, unless it is empty
+	private void add(int rx, int ry, int rwidth, int rheight) {
+		if (rwidth <= 0 || rheight <= 0) {
+			return;
+		}
+		if (size == x.length) {
+			x = Arrays.copyOf(x, 2*size);
+			y = Arrays.copyOf(y, 2*size);
+			width = Arrays.copyOf(width, 2*size);
+			height = Arrays.copyOf(height, 2*size);
+		}
+		x[size] = rx;
+		y[size] = ry;
+		width[size] = rwidth;
+		height[size] = rheight;
+		++size;
+	}
+
+	/**
+	 * Copies the {@code i}th rectangle into {@code r}.
+	 *
+	 * @param i the index of the rectangle
+	 * @param r receives the rectangle
+	 */
+	public void get(int i, Rectangle r) {
+		r.setBounds(x[i], y[i], width[i], height[i]);
+	}
+
+	/**
+	 * Returns {@code true} if any rectangle in the list overlaps {@code r}.
+	 *
+	 * @param r a rectangle
+	 * @return {@code true} if {@code r} overlaps the list.
+	 */
+	public boolean intersects(Rectangle r) {
+		for (int i = 0; i < size; ++i) {
+			if (x[i] < r.x + r.width && r.x < x[i] + width[i] &&
+					y[i] < r.y + r.height && r.y < y[i] + height[i]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Removes all rectangles from the list.
+	 */
+	public void clear() {
+		size = 0;
+	}
+}
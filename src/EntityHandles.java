@@ -0,0 +1,115 @@
+import java.util.Arrays;
+
+/**
+ * Hands out stable handles to the game objects in a game. A handle is an
+ * {@code int} that combines the index of an entry in this table with the
+ * generation of that entry. The index is reused once the object is removed,
+ * but the generation is bumped each time, so a handle to a removed object
+ * never finds the object that later takes its place.
+ * <p>
+ * Unlike the position of an object in the game's list, which changes when
+ * other objects are removed, a handle stays the same for as long as the
+ * object is in the game. Use {@link Game#getGameObject(int)} to look up the
+ * object behind a handle.
+ * </p>
+ */
+public class EntityHandles {
+	/**
+	 * A handle that never refers to an object.
+	 */
+	public static final int NONE = 0;
+
+	/**
+	 * Number of low bits of a handle holding the index.
+	 */
+	private static final int INDEX_BITS = 20;
+	private static final int INDEX_MASK = (1 << INDEX_BITS) - 1;
+
+	/**
+	 * Largest generation before it wraps around to 1.
+	 */
+	private static final int MAX_GENERATION = (1 << (32 - INDEX_BITS)) - 1;
+
+	/**
+	 * The object each entry refers to, or {@code null} if the entry is free.
+	 */
+	private GameObject[] objects = new GameObject[16];
+
+	/**
+	 * The current generation of each entry. Generations start at 1, so that
+	 * no handle is ever equal to {@code NONE}.
+	 */
+	private int[] generations = new int[16];
+
+	/**
+	 * Stack of the free entries that have been used before.
+	 */
+	private int[] free = new int[16];
+	private int freeCount = 0;
+
+	/**
+	 * Number of entries that have ever been used.
+	 */
+	private int used = 0;
+
+	/**
+	 * Returns a new handle for the given object.
+	 *
+	 * @param object the object
+	 * @return the object's handle.
+	 */
+	int add(GameObject object) {
+		int index;
+		if (freeCount > 0) {
+			index = free[--freeCount];
+		} else {
+			if (used > INDEX_MASK) {
+				throw new IllegalStateException("Too many game objects");
+			}
+			if (used == objects.length) {
+				objects = Arrays.copyOf(objects, 2*used);
+				generations = Arrays.copyOf(generations, 2*used);
+			}
+			index = used++;
+			generations[index] = 1;
+		}
+		objects[index] = object;
+		return (generations[index] << INDEX_BITS) | index;
+	}
+
+	/**
+	 * Frees the entry of the given handle. Every existing copy of the handle
+	 * becomes stale. Removing a stale handle does nothing.
+	 *
+	 * @param handle the handle to free
+	 */
+	void remove(int handle) {
+		if (get(handle) == null) {
+			return;
+		}
+		int index = handle & INDEX_MASK;
+		objects[index] = null;
+		generations[index] = generations[index] == MAX_GENERATION ?
+			1 : generations[index] + 1;
+
+		if (freeCount == free.length) {
+			free = Arrays.copyOf(free, 2*freeCount);
+		}
+		free[freeCount++] = index;
+	}
+
+	/**
+	 * Returns the object the given handle refers to.
+	 *
+	 * @param handle a handle
+	 * @return the object, or {@code null} if the handle is stale.
+	 */
+	GameObject get(int handle) {
+		int index = handle & INDEX_MASK;
+		if (handle == NONE || index >= used ||
+				generations[index] != handle >>> INDEX_BITS) {
+			return null;
+		}
+		return objects[index];
+	}
+}
@@ -0,0 +1,204 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Stores the state of the game objects in a structure of arrays: one array of
+ * x coordinates, one array of y coordinates, and so on. The state of the
+ * object at index {@code i} of the game's list of objects is found at index
+ * {@code i} of every array.
+ * <p>
+ * Loops over all objects, such as collision detection, then read memory in
+ * order instead of following a pointer to each object, which is much faster
+ * once there are many objects. A {@link GameObject} that has been added to a
+ * store is just a view of its entry in the store.
+ * </p>
+ * <p>
+ * The arrays are package-private so that the game's inner loops can read them
+ * directly. Do not use this class directly in your code.
+ * </p>
+ *
+ * @see Config#ENTITY_STORE
+ */
+public class EntityStore {
+	/**
+	 * Initial number of objects the arrays can hold.
+	 */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/*
+	 * The state of each object. These arrays may be longer than the number of
+	 * objects in the store.
+	 */
+	double[] x = new double[INITIAL_CAPACITY];
+	double[] y = new double[INITIAL_CAPACITY];
+	double[] speed = new double[INITIAL_CAPACITY];
+	double[] rotation = new double[INITIAL_CAPACITY];
+	double[] headingX = new double[INITIAL_CAPACITY];
+	double[] headingY = new double[INITIAL_CAPACITY];
+	double[] radius = new double[INITIAL_CAPACITY];
+	boolean[] collidable = new boolean[INITIAL_CAPACITY];
+	boolean[] visible = new boolean[INITIAL_CAPACITY];
+
+	/*
+	 * The position and rotation of each object at the start of the tick.
+	 */
+	double[] previousX = new double[INITIAL_CAPACITY];
+	double[] previousY = new double[INITIAL_CAPACITY];
+	double[] previousRotation = new double[INITIAL_CAPACITY];
+
+	/**
+	 * The object stored at each index.
+	 */
+	GameObject[] objects = new GameObject[INITIAL_CAPACITY];
+
+	/**
+	 * Number of objects in the store.
+	 */
+	private int size = 0;
+
+	/**
+	 * Returns the number of objects in the store.
+	 *
+	 * @return the number of objects.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the object stored at the given index.
+	 *
+	 * @param i the index of the object
+	 * @return the {@link GameObject} at that index.
+	 */
+	public GameObject get(int i) {
+		return objects[i];
+	}
+
+	/**
+	 * Adds a game object to the end of the store. The object's state is moved
+	 * into the store, and the object reads and writes it there from now on.
+	 *
+	 * @param object the object to add
+	 */
+	void add(GameObject object) {
+		if (size == objects.length) {
+			allocate(2*size);
+		}
+		objects[size] = object;
+		object.attach(this, size);
+		++size;
+	}
+
+	/**
+	 * Removes the object at index {@code i} by moving the last object into its
+	 * place. The state of the removed object is moved back into the object.
+	 *
+	 * @param i the index of the object to remove
+	 */
+	void remove(int i) {
+		objects[i].detach();
+		--size;
+		if (i != size) {
+			move(size, i);
+		}
+		objects[size] = null;
+	}
+
+	/**
+	 * Copies the state of every object in {@code list} into this store,
+	 * without attaching the objects. This lets code that works on a store
+	 * also work on objects that keep their own state.
+	 *
+	 * @param list the objects to copy
+	 */
+	void copyFrom(List<GameObject> list) {
+		Arrays.fill(objects, 0, size, null);
+		size = 0;
+		if (objects.length < list.size()) {
+			allocate(list.size());
+		}
+		for (GameObject o : list) {
+			objects[size] = o;
+			x[size] = o.getX();
+			y[size] = o.getY();
+			speed[size] = o.getSpeed();
+			rotation[size] = o.getRotation();
+			radius[size] = o.getRadius();
+			previousX[size] = o.getPreviousX();
+			previousY[size] = o.getPreviousY();
+			collidable[size] = o.isCollidable();
+			visible[size] = o.isVisible();
+			++size;
+		}
+	}
+
+	/**
+	 * Computes the bounding box of the object at index {@code i}: the smallest
+	 * box containing its circle at both its position at the start of the tick
+	 * and its current position.
+	 *
+	 * @param i the index of the object
+	 * @param box receives minimum x, minimum y, maximum x and maximum y, in
+	 * that order
+	 */
+	void boundingBox(int i, double[] box) {
+		double r = radius[i];
+		box[0] = Math.min(x[i], previousX[i]) - r;
+		box[1] = Math.min(y[i], previousY[i]) - r;
+		box[2] = Math.max(x[i], previousX[i]) + r;
+		box[3] = Math.max(y[i], previousY[i]) + r;
+	}
+
+	/**
+	 * Remembers the current position and rotation of every object as its
+	 * state at the start of the tick.
+	 */
+	void savePreviousState() {
+		System.arraycopy(x, 0, previousX, 0, size);
+		System.arraycopy(y, 0, previousY, 0, size);
+		System.arraycopy(rotation, 0, previousRotation, 0, size);
+	}
+
+	/**
+	 * Moves the object at index {@code from} to index {@code to}.
+	 */
+	private void move(int from, int to) {
+		x[to] = x[from];
+		y[to] = y[from];
+		speed[to] = speed[from];
+		rotation[to] = rotation[from];
+		headingX[to] = headingX[from];
+		headingY[to] = headingY[from];
+		radius[to] = radius[from];
+		collidable[to] = collidable[from];
+		visible[to] = visible[from];
+		previousX[to] = previousX[from];
+		previousY[to] = previousY[from];
+		previousRotation[to] = previousRotation[from];
+		objects[to] = objects[from];
+		objects[to].setSlot(to);
+	}
+
+	/**
+	 * Makes every array hold {@code capacity} objects, keeping their contents.
+	 */
+	private void allocate(int capacity) {
+		if (objects.length >= capacity) {
+			return;
+		}
+		x = Arrays.copyOf(x, capacity);
+		y = Arrays.copyOf(y, capacity);
+		speed = Arrays.copyOf(speed, capacity);
+		rotation = Arrays.copyOf(rotation, capacity);
+		headingX = Arrays.copyOf(headingX, capacity);
+		headingY = Arrays.copyOf(headingY, capacity);
+		radius = Arrays.copyOf(radius, capacity);
+		collidable = Arrays.copyOf(collidable, capacity);
+		visible = Arrays.copyOf(visible, capacity);
+		previousX = Arrays.copyOf(previousX, capacity);
+		previousY = Arrays.copyOf(previousY, capacity);
+		previousRotation = Arrays.copyOf(previousRotation, capacity);
+		objects = Arrays.copyOf(objects, capacity);
+	}
+}
@@ -1,3 +1,7 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 /**
  * This class represents a flag.  A flag can be in one of four states.
  * <ul>
@@ -18,9 +22,8 @@
  * state. This allows a ship to drop the flag while moving slowly and not
  * immediately pick it up again. In order to pick up a flag, the ship must move
  * off the flag so that they are no longer colliding. This allows the dropping
- * timer to expire. The {@code update()} method, which is called automatically
- * at every game tick, sees that the dropping timer has expired and sets the
- * flag's state to DROPPED. If the ship then moves back and collides with the
+ * timer to expire. When the dropping timer expires, it sets the flag's state
+ * to DROPPED. If the ship then moves back and collides with the
  * flag again, it can be picked up because it is in the DROPPED state.
  */
 public class Flag extends GameObject {
@@ -45,7 +48,7 @@ public class Flag extends GameObject {
 	// class variables you add must be declared private!
 	private int playerID;
     private int flagState;
-    private GameTimer droppingTimer;
+    private TickTimer droppingTimer;
     private Position flagInitPosition;
 
 
@@ -64,9 +67,16 @@ public class Flag extends GameObject {
 		setImage(Config.FLAG_IMG[playerID]);
 		setVisible(true);
 		setCollidable(true);
+		setCollisionType(CollisionType.FLAG);
 		this.playerID = playerID;
 		flagState = DROPPED;
-		droppingTimer = new GameTimer();
+		droppingTimer = new TickTimer(game.getTimers(), new TimerCallback() {
+			public void timerExpired() {
+				if(getState() == DROPPING){
+					flagState = DROPPED;
+				}
+			}
+		});
 		flagInitPosition = getPosition();
 	}
 	
@@ -132,9 +142,9 @@ public class Flag extends GameObject {
 	}
 
 	/**
-	 * Called automatically at each game tick to handle game logic. If this flag
-	 * is in the DROPPING state and the dropping timer has expired, it enters
-	 * the DROPPED state.
+	 * Called automatically at each game tick to handle game logic. A flag has
+	 * no logic that must be run at every tick; it enters the DROPPED state
+	 * when its dropping timer expires.
 	 * <p>
      * Do NOT call this method from your code! It is called automatically each
      * tick.
@@ -144,9 +154,6 @@ public class Flag extends GameObject {
 	 */
 	@Override
 	public void update(double deltaTime) {
-		if(getState() == DROPPING && droppingTimer.hasTimerExpired()){
-			flagState = DROPPED;
-		}
 	}
 
 	/**
@@ -164,7 +171,7 @@ public class Flag extends GameObject {
 	public void collideShip(Ship ship) {
 		
 		if(getState() == DROPPING && playerID != ship.getPlayerID()){
-			droppingTimer.startTimer(Config.FLAG_DROP_TIME);
+			droppingTimer.start(Config.FLAG_DROP_TIME);
 					
 		}
 		ship.collideFlag(this);
@@ -185,7 +192,7 @@ public class Flag extends GameObject {
 		setImage(Config.FLAG_IMG[getPlayerID()]);
 		setVisible(true);
 		setCollidable(true);
-		droppingTimer.startTimer(Config.FLAG_DROP_TIME);
+		droppingTimer.start(Config.FLAG_DROP_TIME);
 		
 		
 		
@@ -213,6 +220,27 @@ public class Flag extends GameObject {
 	 * @return boolean true if the dropping timer has expired
 	 */
 	public boolean getTimer(){
-		return droppingTimer.hasTimerExpired();
+		return !droppingTimer.isPending();
+	}
+
+	/**
+	 * Writes the state of this flag to a replay keyframe, including its
+	 * dropping timer.
+	 */
+	@Override
+	void writeState(DataOutput out) throws IOException {
+		super.writeState(out);
+		out.writeInt(flagState);
+		droppingTimer.writeState(out);
+	}
+
+	/**
+	 * Reads the state written by {@link #writeState} back into this flag.
+	 */
+	@Override
+	void readState(DataInput in) throws IOException {
+		super.readState(in);
+		flagState = in.readInt();
+		droppingTimer.readState(in);
 	}
 }
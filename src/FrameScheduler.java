@@ -0,0 +1,235 @@
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Paces a loop that has to run at a fixed rate, such as the game loop. Each
+ * call to {@link #waitForNextFrame()} waits until the next deadline, which is
+ * always a whole number of periods after the scheduler was started, so the
+ * error of one wait does not carry over into the next one.
+ * <p>
+ * {@code Thread.sleep} can wake up a millisecond or two late, so the
+ * scheduler only sleeps until {@code Config.SCHEDULER_SLEEP_MARGIN}
+ * nanoseconds before the deadline, parks the thread until {@code
+ * Config.SCHEDULER_SPIN_MARGIN} nanoseconds before it, and spins for the
+ * rest of the time.
+ * </p>
+ * <p>
+ * The scheduler also keeps statistics of the actual time between frames, so
+ * that the pacing of the loop can be checked. The clock must advance on its
+ * own, so do not use a scheduler with a {@link VirtualClock}.
+ * </p>
+ */
+public class FrameScheduler {
+	private final GameClock clock;
+
+	/**
+	 * Length of a frame in ns.
+	 */
+	private final long period;
+
+	/**
+	 * The time at which the current frame ends.
+	 */
+	private long deadline;
+
+	/**
+	 * The time at which the previous wait ended, or -1 if there was none.
+	 */
+	private long lastFrameTime = -1;
+
+	/*
+	 * Statistics of the time between frames. The variance is computed with
+	 * Welford's method, which does not lose precision over long runs.
+	 */
+	private long frames = 0;
+	private double meanInterval = 0;
+	private double intervalVariance = 0;
+	private long minInterval = Long.MAX_VALUE;
+	private long maxInterval = 0;
+	private long totalLateness = 0;
+	private long maxLateness = 0;
+	private long missedFrames = 0;
+
+	/**
+	 * Creates a scheduler for a loop that runs at the given rate.
+	 *
+	 * @param clock the clock to read the time from
+	 * @param rate the number of frames per second
+	 */
+	public FrameScheduler(GameClock clock, int rate) {
+		this.clock = clock;
+		this.period = 1000000000L/rate;
+		start();
+	}
+
+	/**
+	 * Starts the first frame now. The scheduler is started when it is
+	 * created; call this to start it again, e.g. after a pause.
+	 */
+	public void start() {
+		deadline = clock.nanoTime() + period;
+		lastFrameTime = -1;
+	}
+
+	/**
+	 * Returns the length of a frame.
+	 *
+	 * @return the length of a frame in ns.
+	 */
+	public long getPeriod() {
+		return period;
+	}
+
+	/**
+	 * Waits until the end of the current frame and starts the next one. If
+	 * the deadline has already passed by more than a whole frame, the frames
+	 * that were missed are skipped rather than run back to back.
+	 */
+	public void waitForNextFrame() {
+		long remaining = deadline - clock.nanoTime();
+
+		// Sleep through most of the remaining time
+		if (remaining > Config.SCHEDULER_SLEEP_MARGIN) {
+			try {
+				Thread.sleep(
+						(remaining - Config.SCHEDULER_SLEEP_MARGIN)/1000000);
+			} catch (InterruptedException e) { }
+			remaining = deadline - clock.nanoTime();
+		}
+
+		// Park until shortly before the deadline
+		while (remaining > Config.SCHEDULER_SPIN_MARGIN) {
+			LockSupport.parkNanos(remaining - Config.SCHEDULER_SPIN_MARGIN);
+			remaining = deadline - clock.nanoTime();
+		}
+
+		// And spin for the rest
+		while (remaining > 0) {
+			Thread.yield();
+			remaining = deadline - clock.nanoTime();
+		}
+
+		long now = clock.nanoTime();
+		record(now, now - deadline);
+
+		// Schedule the next frame against the original timeline
+		deadline += period;
+		if (deadline <= now) {
+			long missed = (now - deadline)/period + 1;
+			deadline += missed*period;
+			missedFrames += missed;
+		}
+	}
+
+	// Adds a frame that ended at the given time to the statistics
+	private void record(long now, long lateness) {
+		if (lastFrameTime >= 0) {
+			long interval = now - lastFrameTime;
+			++frames;
+			totalLateness += lateness;
+			maxLateness = Math.max(maxLateness, lateness);
+			double delta = interval - meanInterval;
+			meanInterval += delta/frames;
+			intervalVariance += delta*(interval - meanInterval);
+			minInterval = Math.min(minInterval, interval);
+			maxInterval = Math.max(maxInterval, interval);
+		}
+		lastFrameTime = now;
+	}
+
+	/**
+	 * Forgets the statistics collected so far.
+	 */
+	public void resetStatistics() {
+		frames = 0;
+		meanInterval = 0;
+		intervalVariance = 0;
+		minInterval = Long.MAX_VALUE;
+		maxInterval = 0;
+		totalLateness = 0;
+		maxLateness = 0;
+		missedFrames = 0;
+	}
+
+	/**
+	 * Returns the number of frame intervals measured.
+	 *
+	 * @return the number of frames.
+	 */
+	public long getFrames() {
+		return frames;
+	}
+
+	/**
+	 * Returns the mean time between the ends of two consecutive frames.
+	 *
+	 * @return the mean frame interval in ns.
+	 */
+	public double getMeanInterval() {
+		return meanInterval;
+	}
+
+	/**
+	 * Returns the jitter of the loop: the standard deviation of the time
+	 * between the ends of two consecutive frames.
+	 *
+	 * @return the jitter in ns.
+	 */
+	public double getJitter() {
+		return frames > 1 ? Math.sqrt(intervalVariance/(frames - 1)) : 0;
+	}
+
+	/**
+	 * Returns the shortest time between the ends of two consecutive frames.
+	 *
+	 * @return the shortest frame interval in ns, or 0 if none was measured.
+	 */
+	public long getMinInterval() {
+		return frames > 0 ? minInterval : 0;
+	}
+
+	/**
+	 * Returns the longest time between the ends of two consecutive frames.
+	 *
+	 * @return the longest frame interval in ns.
+	 */
+	public long getMaxInterval() {
+		return maxInterval;
+	}
+
+	/**
+	 * Returns the mean time by which a frame ended after its deadline.
+	 *
+	 * @return the mean lateness in ns.
+	 */
+	public double getMeanLateness() {
+		return frames > 0 ? (double) totalLateness/frames : 0;
+	}
+
+	/**
+	 * Returns the longest time by which a frame ended after its deadline.
+	 *
+	 * @return the largest lateness in ns.
+	 */
+	public long getMaxLateness() {
+		return maxLateness;
+	}
+
+	/**
+	 * Returns the number of frames that were skipped because the loop fell
+	 * more than a frame behind.
+	 *
+	 * @return the number of missed frames.
+	 */
+	public long getMissedFrames() {
+		return missedFrames;
+	}
+
+	public String toString() {
+		return String.format("%d frames: interval %.3f ms " +
+				"(min %.3f, max %.3f), jitter %.3f ms, late %.3f ms " +
+				"(max %.3f), missed %d", frames,
+				meanInterval/1e6, getMinInterval()/1e6, maxInterval/1e6,
+				getJitter()/1e6, getMeanLateness()/1e6, maxLateness/1e6,
+				missedFrames);
+	}
+}
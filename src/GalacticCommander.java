@@ -22,6 +22,45 @@ public class GalacticCommander extends Game {
 		super();
 	}
 
+	/**
+	 * Creates a new instance of the game that optionally runs without a
+	 * display. A headless game is simulated as fast as possible, which is
+	 * useful for testing and balancing the game.
+	 * 
+	 * @param headless {@code true} to run the game without a display.
+	 * @throws IOException
+	 */
+	public GalacticCommander(boolean headless) throws IOException {
+		super(headless);
+	}
+
+	/**
+	 * Creates a new instance of the game whose random choices are made from
+	 * the given seed, e.g. to play back a replay.
+	 * 
+	 * @param headless {@code true} to run the game without a display.
+	 * @param seed the seed of the game's random choices
+	 * @throws IOException
+	 */
+	public GalacticCommander(boolean headless, long seed) throws IOException {
+		super(headless, seed);
+	}
+
+	/**
+	 * Creates a new instance of the game that reads the time from the given
+	 * clock, e.g. a {@link VirtualClock} for a test that steps the game
+	 * itself.
+	 * 
+	 * @param headless {@code true} to run the game without a display.
+	 * @param seed the seed of the game's random choices
+	 * @param clock the clock of the game
+	 * @throws IOException
+	 */
+	public GalacticCommander(boolean headless, long seed, GameClock clock)
+			throws IOException {
+		super(headless, seed, clock);
+	}
+
 	private Ship ship1;
 	private Ship ship2;
 	
@@ -244,5 +283,57 @@ public class GalacticCommander extends Game {
 			}
 		}
 	} // End of score()
-	
+
+	/**
+	 * Returns the current score of the indicated player.
+	 * 
+	 * @param playerID the player whose score to return.
+	 * @return the number of points the player has scored.
+	 */
+	@Override
+	int getScore(int playerID) {
+		if (playerID == Config.PLAYER1_ID) {
+			return p1Score;
+		}
+		return p2Score;
+	}
+
+	/**
+	 * Sets the score of the indicated player, e.g. when a replay is rewound.
+	 * Unlike {@code score()}, this never ends the game.
+	 * 
+	 * @param playerID the player whose score to set.
+	 * @param score the number of points the player has scored.
+	 */
+	@Override
+	void setScore(int playerID, int score) {
+		if (playerID == Config.PLAYER1_ID) {
+			p1Score = score;
+			getGraphics().setPanelText(Graphics.LEFT_PANEL,
+					"Player 1: " + p1Score);
+		} else {
+			p2Score = score;
+			getGraphics().setPanelText(Graphics.RIGHT_PANEL,
+					"Player 2: " + p2Score);
+		}
+		if (endGame) {
+			endGame = false;
+			getGraphics().setPanelText(Graphics.CENTER_PANEL, "");
+		}
+	}
+
+	/**
+	 * Returns the ship of the indicated player.
+	 * 
+	 * @param playerID the player whose ship to return.
+	 * @return the player's {@link Ship}.
+	 */
+	@Override
+	Ship getShip(int playerID) {
+		if (playerID == Config.PLAYER1_ID) {
+			return ship1;
+		}
+		return ship2;
+	}
+
 }
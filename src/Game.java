@@ -0,0 +1,933 @@
+import java.awt.GraphicsEnvironment;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * This is an abstract (i.e., incomplete) class which implements most of the
+ * functionality that is common to any game, including running the game loop and
+ * doing collision detection. This code is completed for you and you must not
+ * modify it. 
+ */
+public abstract class Game {
+    // How each pair of collision types handles a collision
+    private final static CollisionHandler[][] COLLISION_HANDLERS =
+        createCollisionHandlers();
+    
+    private boolean running = false;
+    private boolean ended = false;
+    private volatile boolean paused = false;
+    private boolean headless;
+    private Graphics graphics;
+	private Keyboard keyboard = new Keyboard();
+
+    private GameClock clock;
+    private FrameScheduler scheduler;
+    private long lastGameTime;
+    private long gameTime;
+    private long ticks = 0;
+
+    // True while the variable-step loop runs the game, with ticks of
+    // varying length, and the time in ns it has simulated so far
+    private boolean variableStep = false;
+    private long simulatedTime = 0;
+
+    private ArrayList<GameObject> gameObjects = new ArrayList<GameObject>();
+    private ArrayList<GameObject> toRemove = new ArrayList<GameObject>();
+
+    // The state of the game objects, in the same order as gameObjects. If
+    // Config.ENTITY_STORE is off, the objects keep their own state and it is
+    // only copied here for the broad phase.
+    private EntityStore entities = new EntityStore();
+
+    private EntityHandles handles = new EntityHandles();
+
+    private BulletPool bulletPool = new BulletPool(this);
+
+    private TimerWheel timers = new TimerWheel();
+
+    // Incremented whenever a static object is added or removed
+    private int staticVersion = 0;
+
+    private ArrayList<InputSource> inputSources = new ArrayList<InputSource>();
+
+    private BroadPhase broadPhase;
+    private CollisionPairs collisionPairs = new CollisionPairs();
+
+    // Every random choice the game makes comes from here, so that a game is
+    // played the same way again given the same seed and the same input
+    private long seed;
+    private Random random;
+
+    private ReplayRecorder recorder;
+
+    /**
+     * Initializes the Game object. This constructor should be called in any
+     * subclass which extends the Game class. The game runs headless if there
+     * is no display available.
+     * 
+     * @throws IOException
+     */
+    public Game() throws IOException {
+        this(GraphicsEnvironment.isHeadless());
+    }
+
+    /**
+     * Initializes the Game object. A headless game does not open a window or
+     * decode any images, and its game loop runs the simulation as fast as
+     * possible instead of in real time.
+     * 
+     * @param headless {@code true} to run the game without a display.
+     * @throws IOException
+     */
+    protected Game(boolean headless) throws IOException {
+        this(headless, new Random().nextLong());
+    }
+
+    /**
+     * Initializes the Game object with the seed of its random choices. Given
+     * the same seed and the same input at each tick, the game is played
+     * exactly the same way again.
+     * 
+     * @param headless {@code true} to run the game without a display.
+     * @param seed the seed of the game's {@link Random}
+     * @throws IOException
+     */
+    protected Game(boolean headless, long seed) throws IOException {
+        this(headless, seed, headless ? new VirtualClock()
+                : RealTimeClock.INSTANCE);
+    }
+
+    /**
+     * Initializes the Game object with the seed of its random choices and the
+     * clock it reads the time from. A {@link VirtualClock} is advanced by
+     * {@link #step(double)} at every tick, so that the game, its timers and
+     * its renderer all run on simulated time. Since such a clock does not
+     * move on its own, a windowed game with one has to be stepped by the
+     * caller rather than by {@link #runGameLoop()}.
+     * 
+     * @param headless {@code true} to run the game without a display.
+     * @param seed the seed of the game's {@link Random}
+     * @param clock the {@link GameClock} of the game
+     * @throws IOException
+     */
+    protected Game(boolean headless, long seed, GameClock clock)
+            throws IOException {
+        this.headless = headless;
+        this.seed = seed;
+        this.random = new Random(seed);
+        this.clock = clock;
+        graphics = new Graphics(this, headless);
+        broadPhase = createBroadPhase(Config.BROAD_PHASE);
+    }
+
+    /**
+     * Creates the broad phase with the given name, which must be one of the
+     * names listed for {@link Config#BROAD_PHASE}.
+     * 
+     * @param name the name of the broad phase
+     * @return a new {@link BroadPhase}.
+     */
+    private static BroadPhase createBroadPhase(String name) {
+        if (name.equals("brute")) {
+            return new BruteForceBroadPhase();
+        } else if (name.equals("grid")) {
+            return new SpatialHashBroadPhase();
+        } else if (name.equals("sweep")) {
+            return new SweepAndPruneBroadPhase();
+        }
+        throw new IllegalArgumentException("Unknown broad phase: " + name);
+    }
+
+    /**
+     * This method contains the game loop, which is the update/draw/wait cycle
+     * that is the heartbeat of the game. This method does not return; after the
+     * game is ended with {@code endGame()}, this method simply continues
+     * drawing the game until the user closes the program. Once the game has
+     * ended, and while it is paused, the game is only drawn again when the
+     * screen needs it: when the window is exposed, a text panel changes, or a
+     * key is pressed.
+     * <p>
+     * If {@link Config#FIXED_TIMESTEP} is set, the game is simulated in ticks
+     * of a fixed length and each frame is drawn in between the last two ticks.
+     * </p>
+     * <p>
+     * A headless game is instead stepped as fast as possible, with each tick
+     * simulating {@code 1/Config.SIMULATION_RATE} seconds of its virtual clock,
+     * and this method returns as soon as the game is ended.
+     * </p>
+     */
+    protected void runGameLoop() {
+        if (headless) {
+            runHeadlessGameLoop();
+            return;
+        }
+
+        if (Config.FIXED_TIMESTEP) {
+            runFixedStepGameLoop();
+        } else {
+            runVariableStepGameLoop();
+        }
+
+		// After the game is over, keep drawing it until the players exit, but
+		// only when the screen has been invalidated
+		graphics.setIdle(true);
+		while (true) {
+			// Draw the screen
+			graphics.draw();
+
+			graphics.awaitInvalidation();
+		}
+    } // End of runGameLoop()
+
+    // Draws the game whenever the screen is invalidated, for as long as the
+    // game is paused
+    private void waitWhilePaused() {
+        graphics.setIdle(true);
+        while (paused && running) {
+            graphics.draw();
+            graphics.awaitInvalidation();
+        }
+        graphics.setIdle(false);
+    }
+
+    // Runs the game with each tick simulating the time since the previous one
+    private void runVariableStepGameLoop() {
+        scheduler = new FrameScheduler(clock, Config.TICK_RATE);
+        lastGameTime = clock.nanoTime();
+        simulatedTime = timers.getTick()*1000000000L/Config.SIMULATION_RATE;
+        variableStep = true;
+
+        running = true;
+        
+		// Game loop
+        while (running) {
+            if (paused) {
+                waitWhilePaused();
+                lastGameTime = clock.nanoTime();
+                scheduler.start();
+                continue;
+            }
+
+			// Save time at start of tick
+            gameTime = clock.nanoTime();
+
+            // Update game
+            step((gameTime - lastGameTime)/1e9);
+
+            // Render game
+            graphics.draw();
+            
+            // Save the time this tick started
+            lastGameTime = gameTime;
+
+			// Relinquish the CPU until the next tick time
+            scheduler.waitForNextFrame();
+            reportFrameTiming();
+        }
+    }
+
+    // Runs the simulation in fixed ticks of Config.SIMULATION_RATE per second
+    // and draws Config.FRAME_RATE frames per second in between them
+    private void runFixedStepGameLoop() {
+        long stepTime = getStepTime();
+
+        // Time that has passed but has not been simulated yet
+        long accumulator = 0;
+
+        // With a render thread, publish a snapshot after every tick instead
+        // of waiting for the next frame
+        scheduler = new FrameScheduler(clock, Config.RENDER_THREAD ?
+                Config.SIMULATION_RATE : Config.FRAME_RATE);
+        lastGameTime = clock.nanoTime();
+        running = true;
+
+        while (running) {
+            if (paused) {
+                // Time spent paused is not simulated afterwards
+                waitWhilePaused();
+                lastGameTime = clock.nanoTime();
+                scheduler.start();
+                continue;
+            }
+
+            gameTime = clock.nanoTime();
+            accumulator += gameTime - lastGameTime;
+            lastGameTime = gameTime;
+
+            // Simulate all the ticks that fit into the elapsed time. If the
+            // game has fallen too far behind, give up on the missed time
+            // rather than simulating more and more ticks every frame.
+            int ticksThisFrame = 0;
+            while (accumulator >= stepTime && running) {
+                if (ticksThisFrame == Config.MAX_CATCHUP_TICKS) {
+                    accumulator %= stepTime;
+                    break;
+                }
+                step(stepTime/1e9);
+                accumulator -= stepTime;
+                ++ticksThisFrame;
+            }
+
+            // Draw the game the fraction of a tick it is ahead of the
+            // simulation
+            graphics.draw((double) accumulator/stepTime);
+
+			// Relinquish the CPU until the next frame time
+            scheduler.waitForNextFrame();
+            reportFrameTiming();
+        }
+    }
+
+    // Prints and resets the frame timing statistics once per second if
+    // Config.PRINT_FRAME_TIMING is set
+    private void reportFrameTiming() {
+        if (Config.PRINT_FRAME_TIMING &&
+                scheduler.getFrames()*scheduler.getPeriod() >= 1000000000L) {
+            System.out.println(scheduler);
+            scheduler.resetStatistics();
+        }
+    }
+
+    // Steps the game without drawing or waiting until it has ended
+    private void runHeadlessGameLoop() {
+        running = true;
+        while (running) {
+            if (paused) {
+                waitWhilePaused();
+                continue;
+            }
+            step(getStepTime()/1e9);
+        }
+    }
+
+    // Returns the length of a fixed tick in ns
+    private long getStepTime() {
+        return 1000000000L/Config.SIMULATION_RATE;
+    }
+
+    /**
+     * Advances the game by a single tick: updates all of the game objects,
+     * handles collisions, and removes the objects that were removed during the
+     * tick. Nothing is drawn. If the game runs on a {@link VirtualClock}, the
+     * clock is advanced by {@code deltaTime} first.
+     * <p>
+     * Your code should not call this method; it is called automatically by
+     * the game loop.
+     * </p>
+     * 
+     * @param deltaTime the time in seconds to simulate.
+     */
+    public void step(double deltaTime) {
+        // Let the replay save the whole state of the game now and then. This
+        // must come before anything of the tick has happened, since seeking
+        // in the replay restores the keyframe and then steps from here.
+        if (recorder != null) {
+            try {
+                recorder.beginTick();
+            } catch (IOException e) {
+                recordingFailed(e);
+            }
+        }
+
+        // Games on a virtual clock run on simulated time
+        if (clock instanceof VirtualClock) {
+            ((VirtualClock) clock).advance(Math.round(deltaTime*1e9));
+        }
+
+        // Remember where everything is, to draw in between ticks
+        if (Config.ENTITY_STORE) {
+            entities.savePreviousState();
+        } else {
+            for (GameObject o : gameObjects) {
+                o.savePreviousState();
+            }
+        }
+
+        // Let the timers that are due expire. A tick of the timers is always
+        // 1/Config.SIMULATION_RATE seconds of simulated time: with fixed
+        // steps that is one step, and otherwise the wheel follows the time
+        // simulated so far, so that timers last as long as the ships move.
+        if (variableStep) {
+            simulatedTime += Math.round(deltaTime*1e9);
+            timers.advanceTo(simulatedTime*Config.SIMULATION_RATE/1000000000L);
+        } else {
+            timers.advanceTo(ticks);
+        }
+
+        // Update game
+        update(deltaTime);
+
+        // Clean up removed objects
+        for (GameObject o : toRemove) {
+            dropGameObject(o);
+        }
+        toRemove.clear();
+
+        ++ticks;
+    }
+
+    private void update(double deltaTime) {
+        // Let the input sources press their keys
+        if (!inputSources.isEmpty()) {
+            int buttons = 0;
+            for (InputSource source : inputSources) {
+                buttons |= source.getButtons(this);
+            }
+            keyboard.setButtons(buttons);
+        }
+
+        // Record the keys the game is about to handle
+        if (recorder != null) {
+            try {
+                recorder.record(keyboard.getButtons());
+            } catch (IOException e) {
+                recordingFailed(e);
+            }
+        }
+
+        // Handle input 
+        handleInput(deltaTime);
+
+        // Update positions 
+        for (Object o : gameObjects) {
+            ((GameObject)o).update(deltaTime);
+        }
+
+        // Find the pairs of game objects that might be colliding 
+        collisionPairs.clear();
+        if (!Config.ENTITY_STORE) {
+            entities.copyFrom(gameObjects);
+        }
+        broadPhase.findPairs(entities, collisionPairs);
+
+        // Check for collisions between those pairs. The pairs are sorted, so
+        // this visits them in the same order as checking each object against
+        // all objects later in the list.
+        int lastFirst = -1;
+        boolean firstCollidable = false;
+        for (int k = 0; k < collisionPairs.size(); ++k) {
+            GameObject a = entities.get(collisionPairs.getFirst(k));
+            GameObject b = entities.get(collisionPairs.getSecond(k));
+
+            // Skip this pair if the first object doesn't participate in
+            // collisions. Like the double loop, this is decided once for all
+            // pairs with the same first object.
+            if (collisionPairs.getFirst(k) != lastFirst) {
+                lastFirst = collisionPairs.getFirst(k);
+                firstCollidable = a.isCollidable();
+            }
+            if (!firstCollidable) {
+                continue;
+            }
+            // Skip this pair if the second object doesn't participate in
+            // collisions. 
+            if (!b.isCollidable()) {
+                continue;
+            }
+
+            // Skip this pair if the two objects can never interact 
+            if (!a.canCollideWith(b)) {
+                continue;
+            }
+
+            // If the two objects collide, let them handle the collision 
+            if (a.collidesWith(b)) {
+                collideAwithB(a, b);
+                collideAwithB(b, a);
+            }
+        }
+    } // End of update()
+
+    // Takes a removed object out of the game by moving the last object into
+    // its place, and frees its handle. Removed bullets can be fired again.
+    private void dropGameObject(GameObject object) {
+        object.setRemovalPending(false);
+        if (handles.get(object.getHandle()) != object) {
+            return;
+        }
+        handles.remove(object.getHandle());
+        object.setHandle(EntityHandles.NONE);
+
+        int slot = object.getSlot();
+        int last = gameObjects.size() - 1;
+        GameObject moved = gameObjects.remove(last);
+        if (slot != last) {
+            gameObjects.set(slot, moved);
+            moved.setSlot(slot);
+        }
+        if (Config.ENTITY_STORE) {
+            entities.remove(slot);
+        }
+        if (object.isStatic()) {
+            ++staticVersion;
+        }
+
+        if (object instanceof Bullet) {
+            bulletPool.release((Bullet) object);
+        }
+    }
+
+    // Looks up the handler for the collision types of a and b in the
+    // collision table and lets a handle its collision with b.
+    private void collideAwithB(GameObject a, GameObject b) {
+        int typeA = a.getCollisionType();
+        int typeB = b.getCollisionType();
+        if (typeA == CollisionType.NONE || typeB == CollisionType.NONE) {
+            return;
+        }
+
+        CollisionHandler handler = COLLISION_HANDLERS[typeA][typeB];
+        if (handler != null) {
+            handler.collide(a, b);
+        }
+    }
+
+    /**
+     * Builds the collision table. Entry [A][B] handles a collision of an
+     * object of type A with an object of type B, or is null if objects of
+     * type A don't react to objects of type B.
+     * 
+     * @return the collision table, indexed by {@link CollisionType}.
+     */
+    private static CollisionHandler[][] createCollisionHandlers() {
+        CollisionHandler[][] handlers =
+            new CollisionHandler[CollisionType.COUNT][CollisionType.COUNT];
+
+        handlers[CollisionType.SHIP][CollisionType.SHIP] =
+            new CollisionHandler() {
+                public void collide(GameObject a, GameObject b) {
+                    ((Ship) a).collideShip();
+                }
+            };
+        handlers[CollisionType.SHIP][CollisionType.BULLET] =
+            new CollisionHandler() {
+                public void collide(GameObject a, GameObject b) {
+                    ((Ship) a).collideBullet();
+                }
+            };
+        handlers[CollisionType.SHIP][CollisionType.ASTEROID] =
+            new CollisionHandler() {
+                public void collide(GameObject a, GameObject b) {
+                    ((Ship) a).collideAsteroid();
+                }
+            };
+        handlers[CollisionType.SHIP][CollisionType.FLAG] =
+            new CollisionHandler() {
+                public void collide(GameObject a, GameObject b) {
+                    ((Ship) a).collideFlag((Flag) b);
+                }
+            };
+        handlers[CollisionType.SHIP][CollisionType.BASE] =
+            new CollisionHandler() {
+                public void collide(GameObject a, GameObject b) {
+                    ((Ship) a).collideBase((Base) b);
+                }
+            };
+        handlers[CollisionType.BULLET][CollisionType.ASTEROID] =
+            new CollisionHandler() {
+                public void collide(GameObject a, GameObject b) {
+                    ((Bullet) a).collideAsteroid();
+                }
+            };
+        handlers[CollisionType.BULLET][CollisionType.SHIP] =
+            new CollisionHandler() {
+                public void collide(GameObject a, GameObject b) {
+                    ((Bullet) a).collideShip();
+                }
+            };
+        handlers[CollisionType.FLAG][CollisionType.SHIP] =
+            new CollisionHandler() {
+                public void collide(GameObject a, GameObject b) {
+                    ((Flag) a).collideShip((Ship) b);
+                }
+            };
+
+        return handlers;
+    }
+
+    /**
+     * Returns an unmodifiable list of all GameObjects currently in the game.
+     * <p>
+     * Your code should not call this method; it is called automatically to
+     * draw the game.
+     * </p>
+     * 
+     * @return a list of the GameObjects in the game
+     */
+    public List<GameObject> getGameObjects() {
+    	return Collections.unmodifiableList(gameObjects);
+    }
+    
+    /**
+     * Adds a GameObject (i.e., a Ship, Flag, Asteroid, or Bullet) to the game.
+     * 
+     * @param object the GameObject to add
+     */
+    public void addGameObject(GameObject object) {
+    	object.setSlot(gameObjects.size());
+    	object.setHandle(handles.add(object));
+    	gameObjects.add(object);
+    	if (Config.ENTITY_STORE) {
+    	    entities.add(object);
+    	}
+    	if (object.isStatic()) {
+    	    ++staticVersion;
+    	}
+    }
+    
+    /**
+     * Removes a GameObject (i.e., a Ship, Flag, Asteroid, or Bullet) from the
+     * game.
+     * <p>
+     * You MUST use this method to remove objects that are no longer needed!
+     * </p>
+     * <p>
+     * The object is taken out of the game at the end of the current tick.
+     * Removing an object more than once, e.g. a bullet that leaves the
+     * playing field and hits a ship in the same tick, has no further effect.
+     * </p>
+     * 
+     * @param object the GameObject to remove
+     */
+    public void removeGameObject(GameObject object) {
+        if (object.isRemovalPending()) {
+            return;
+        }
+        object.setRemovalPending(true);
+        toRemove.add(object);
+    } // End of removeGameObject()
+
+    /**
+     * Returns the GameObject with the given handle (see {@link
+     * GameObject#getHandle()}).
+     * 
+     * @param handle the handle of a GameObject
+     * @return the GameObject, or {@code null} if it has been removed from the
+     * game.
+     */
+    public GameObject getGameObject(int handle) {
+        return handles.get(handle);
+    }
+
+    /**
+     * Returns a number that changes whenever a static object (see {@link
+     * GameObject#isStatic()}) is added to or removed from the game, so that
+     * the renderer knows when to redraw its cached static layer.
+     * 
+     * @return the version of the game's static objects.
+     */
+    public int getStaticVersion() {
+        return staticVersion;
+    }
+
+    /**
+     * Returns the timing wheel that runs the {@link TickTimer}s of this game.
+     * The wheel is advanced at the start of every tick.
+     * 
+     * @return the game's {@link TimerWheel}.
+     */
+    public TimerWheel getTimers() {
+        return timers;
+    }
+
+    /**
+     * Returns the pool that bullets fired in this game are taken from. Bullets
+     * are returned to the pool automatically when they are removed from the
+     * game.
+     * 
+     * @return the game's {@link BulletPool}.
+     */
+    public BulletPool getBulletPool() {
+        return bulletPool;
+    }
+
+    /**
+     * Sets the broad-phase collision detection algorithm used by this game.
+     * By default, the game uses the one named by {@link Config#BROAD_PHASE}.
+     * 
+     * @param broadPhase the {@link BroadPhase} to use.
+     */
+    public void setBroadPhase(BroadPhase broadPhase) {
+        this.broadPhase = broadPhase;
+    }
+
+    /**
+     * Returns the clock that this game and its timers read the time from.
+     * Unless another clock was given to the constructor, this is a {@link
+     * VirtualClock} if the game is headless, and a {@link RealTimeClock}
+     * otherwise.
+     * 
+     * @return the game's {@link GameClock}.
+     */
+    public GameClock getClock() {
+        return clock;
+    }
+
+    /**
+     * Returns the scheduler that paces the game loop, whose statistics show
+     * how evenly the frames are spaced.
+     * 
+     * @return the game loop's {@link FrameScheduler}, or {@code null} if the
+     * game loop has not started or the game is headless.
+     */
+    public FrameScheduler getFrameScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Returns the seed the game's random choices were made from.
+     * 
+     * @return the seed of the game.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Returns the source of the game's random choices. Game objects should
+     * use this rather than a {@link Random} of their own, so that the game
+     * can be replayed.
+     * 
+     * @return the game's {@link Random}.
+     */
+    public Random getRandom() {
+        return random;
+    }
+
+    /**
+     * Returns {@code true} if this game is running without a display.
+     * 
+     * @return {@code true} if the game is headless.
+     */
+    public boolean isHeadless() {
+        return headless;
+    }
+
+    /**
+     * Returns the number of ticks the game has been stepped so far.
+     * 
+     * @return the number of ticks since the game started.
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Pauses the game. The game loop stops simulating the game and only draws
+     * it when the screen needs to be redrawn, until {@link #resume()} is
+     * called. This may be called from any thread, e.g. from a key listener.
+     */
+    public void pause() {
+        paused = true;
+        graphics.requestRedraw();
+    }
+
+    /**
+     * Resumes a paused game. The time spent paused is skipped rather than
+     * simulated.
+     */
+    public void resume() {
+        paused = false;
+        graphics.requestRedraw();
+    }
+
+    /**
+     * Returns {@code true} if the game is paused.
+     * 
+     * @return {@code true} if the game is paused.
+     */
+    public boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * Returns {@code true} once the game has been ended with {@code
+     * endGame()}.
+     * 
+     * @return {@code true} if the game has ended.
+     */
+    public boolean hasEnded() {
+        return ended;
+    }
+
+    /**
+     * Returns the Graphics object associated with this game, which can
+     * be used to draw text to the screen.
+     * 
+     * @return the game's {@link Graphics} object.
+     */
+    public Graphics getGraphics() {
+    	return graphics;
+    }
+    
+    /**
+     * Adds a source of input, such as a bot, to the game. Once an input source
+     * has been added, the keys pressed on the {@link Keyboard} are the keys
+     * pressed by the input sources at the start of each tick, and the real
+     * keyboard is ignored.
+     * 
+     * @param source the {@link InputSource} to add
+     */
+    public void addInputSource(InputSource source) {
+        inputSources.add(source);
+    }
+
+    /**
+     * Starts recording the game as a replay. The recording must start before
+     * the first tick, and it is finished when the game ends or {@link
+     * #stopRecording()} is called.
+     * 
+     * @param recorder the {@link ReplayRecorder} to record to
+     * @throws IllegalStateException if the game has already been stepped, or
+     * its ticks are not all of the same length
+     */
+    public void startRecording(ReplayRecorder recorder) {
+        if (ticks != 0) {
+            throw new IllegalStateException("The game has already started");
+        }
+        if (!headless && !Config.FIXED_TIMESTEP) {
+            throw new IllegalStateException(
+                    "Only fixed time steps can be replayed");
+        }
+        this.recorder = recorder;
+    }
+
+    /**
+     * Stops recording the game and closes the replay, if it is being
+     * recorded.
+     */
+    public void stopRecording() {
+        if (recorder == null) {
+            return;
+        }
+        try {
+            recorder.close();
+        } catch (IOException e) {
+            System.err.println("Could not finish the replay: " + e);
+        }
+        recorder = null;
+    }
+
+    // Stops a recording that could not be written
+    private void recordingFailed(IOException e) {
+        System.err.println("Recording stopped: " + e);
+        stopRecording();
+    }
+
+    /**
+     * Writes the whole state of the game to a replay keyframe: the tick, the
+     * scores, the timers, and every game object in the order of the list.
+     * Called by the {@link ReplayRecorder} at the very start of {@link
+     * #step(double)}, before the timers are advanced and the input sources
+     * are asked for their keys, so that stepping a game restored from the
+     * keyframe plays the tick exactly as it was recorded.
+     * 
+     * @param out where to write the keyframe
+     * @throws IOException if the keyframe could not be written
+     */
+    void writeKeyframe(DataOutput out) throws IOException {
+        out.writeLong(ticks);
+        out.writeInt(getScore(Config.PLAYER1_ID));
+        out.writeInt(getScore(Config.PLAYER2_ID));
+        timers.writeState(out);
+        out.writeInt(gameObjects.size());
+        for (GameObject o : gameObjects) {
+            // Every object but a bullet is in the game from the start, so it
+            // is found again by its handle
+            out.writeInt(o instanceof Bullet ? EntityHandles.NONE
+                    : o.getHandle());
+            o.writeState(out);
+        }
+    }
+
+    /**
+     * Puts the game back into the state written to a replay keyframe. The
+     * game must have been created from the same seed as the game the
+     * keyframe was written from, and must not be in the middle of {@link
+     * #step(double)}. The next step then plays the tick the keyframe was
+     * written at. The bullets restored get new handles.
+     * 
+     * @param in where to read the keyframe from
+     * @throws IOException if the keyframe could not be read or does not fit
+     * this game
+     */
+    void readKeyframe(DataInput in) throws IOException {
+        ticks = in.readLong();
+        ended = false;
+        setScore(Config.PLAYER1_ID, in.readInt());
+        setScore(Config.PLAYER2_ID, in.readInt());
+        timers.readState(in);
+
+        // Take every object out of the game, and put them back in the order
+        // of the keyframe, since that is the order they collide in
+        if (Config.ENTITY_STORE) {
+            for (int i = gameObjects.size() - 1; i >= 0; --i) {
+                entities.remove(i);
+            }
+        }
+        for (GameObject o : gameObjects) {
+            if (o instanceof Bullet) {
+                handles.remove(o.getHandle());
+                o.setHandle(EntityHandles.NONE);
+                bulletPool.release((Bullet) o);
+            }
+        }
+        gameObjects.clear();
+
+        int size = in.readInt();
+        for (int i = 0; i < size; ++i) {
+            int handle = in.readInt();
+            GameObject object;
+            if (handle == EntityHandles.NONE) {
+                object = bulletPool.acquire(0, 0, 0);
+                object.setHandle(handles.add(object));
+            } else {
+                object = handles.get(handle);
+                if (object == null) {
+                    throw new IOException("Keyframe does not fit the game");
+                }
+            }
+            object.setSlot(i);
+            gameObjects.add(object);
+            if (Config.ENTITY_STORE) {
+                entities.add(object);
+            }
+            object.readState(in);
+        }
+        timers.finishRestore();
+        ++staticVersion;
+    }
+
+    /**
+     * Returns the Keyboard object associated with this game, which can be used
+     * to get user input.
+     * 
+     * @return this game's {@link Keyboard} object.
+     */
+    public Keyboard getKeyboard() {
+    	return keyboard;
+    }
+    
+	
+	/**
+	 * Ends the game. The program will exit when the close button is pressed.
+	 */
+	public void endGame() {
+		running = false;
+		ended = true;
+		stopRecording();
+		graphics.requestRedraw();
+	}
+	
+	abstract void score(int player);
+	abstract int getScore(int player);
+	abstract void setScore(int player, int score);
+	abstract Ship getShip(int player);
+    abstract void initGame();
+    abstract void handleInput(double deltaTime);
+} // End of class Game 
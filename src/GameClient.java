@@ -0,0 +1,396 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Random;
+
+/**
+ * A connection to a {@link GameServer}. The client sends the buttons its
+ * player is pressing with {@link #sendInput(int)}, and receives the state of
+ * the game by calling {@link #poll()} regularly. Neither call ever blocks.
+ * The client of a player also predicts where the player's own ship is (see
+ * {@link #getPredictor()}), so that the ship can be shown reacting to the
+ * player's keys at once.
+ * <p>
+ * Running this class starts many clients at once that press random buttons,
+ * and reports how often they received a state and how long their inputs took
+ * to be applied, to test how a server copes with many clients.
+ * </p>
+ * <p>
+ * Usage: {@code java GameClient [-local] [-host HOST] [-port N] [-clients N]
+ * [-seconds N]}. With {@code -local}, a server is started in the same
+ * program on a free port.
+ * </p>
+ */
+public class GameClient {
+	private final SocketChannel channel;
+	private final ByteBuffer in = ByteBuffer.allocate(
+			NetProtocol.HEADER_BYTES + NetProtocol.MAX_PAYLOAD);
+	private ByteBuffer out = ByteBuffer.allocate(256);
+
+	private boolean welcomed = false;
+	private int playerID = NetProtocol.SPECTATOR;
+	private int tickRate = Config.SIMULATION_RATE;
+	private ShipPredictor predictor = null;
+
+	/*
+	 * The states received during the last ticks, indexed by tick modulo their
+	 * number, which the server may encode later states against.
+	 */
+	private final NetworkState[] states =
+		new NetworkState[Config.SNAPSHOT_HISTORY];
+	private NetworkState state = new NetworkState();
+	private NetworkState decoding = new NetworkState();
+	private final SnapshotCodec codec = new SnapshotCodec();
+	private long statesReceived = 0;
+	private int sequence = 0;
+	private int ackedSequence = 0;
+
+	/**
+	 * Connects to a server.
+	 *
+	 * @param host the name or address of the server
+	 * @param port the TCP port of the server
+	 * @throws IOException if the server could not be reached
+	 */
+	public GameClient(String host, int port) throws IOException {
+		channel = SocketChannel.open(new InetSocketAddress(host, port));
+		channel.socket().setTcpNoDelay(true);
+		channel.configureBlocking(false);
+	}
+
+	/**
+	 * Sends the buttons the player is pressing to the server, and applies them
+	 * to the predicted ship. The server applies one input per tick, so call
+	 * this once per tick. The server ignores the buttons of the other player,
+	 * and all the buttons of a spectator.
+	 *
+	 * @param buttons the bitwise OR of the {@code Keyboard.BUTTON_} constants
+	 * of the pressed keys
+	 * @return the sequence number of this input.
+	 * @throws IOException if the connection failed
+	 */
+	public int sendInput(int buttons) throws IOException {
+		ensureRoom(NetProtocol.HEADER_BYTES + 7);
+		int start = NetProtocol.beginFrame(out, NetProtocol.INPUT);
+		out.putInt(++sequence);
+		out.putShort((short) buttons);
+		NetProtocol.endFrame(out, start);
+		flush();
+		if (predictor != null) {
+			predictor.predict(sequence, buttons);
+		}
+		return sequence;
+	}
+
+	/**
+	 * Sends what could not be sent yet, and reads everything the server has
+	 * sent since the last call. The latest state received is acknowledged, so
+	 * that the server can send the next states as the difference from it.
+	 *
+	 * @return {@code true} if a new state was received.
+	 * @throws IOException if the connection failed or the server closed it
+	 */
+	public boolean poll() throws IOException {
+		flush();
+		long received = statesReceived;
+		while (true) {
+			int n = channel.read(in);
+			if (n < 0) {
+				throw new EOFException("Connection closed by server");
+			}
+			in.flip();
+			ByteBuffer frame;
+			while ((frame = NetProtocol.nextFrame(in)) != null) {
+				handle(frame);
+			}
+			in.compact();
+			if (n == 0) {
+				break;
+			}
+		}
+
+		if (statesReceived == received) {
+			return false;
+		}
+		ensureRoom(NetProtocol.HEADER_BYTES + 5);
+		int start = NetProtocol.beginFrame(out, NetProtocol.ACK);
+		out.putInt((int) state.getTick());
+		NetProtocol.endFrame(out, start);
+		flush();
+		return true;
+	}
+
+	/**
+	 * Returns {@code true} once the server has told this client who it is.
+	 *
+	 * @return {@code true} if the client has been welcomed.
+	 */
+	public boolean isWelcomed() {
+		return welcomed;
+	}
+
+	/**
+	 * Returns the ID of the player this client controls.
+	 *
+	 * @return the player's ID, or {@code NetProtocol.SPECTATOR} if the client
+	 * only watches the game or has not been welcomed yet.
+	 */
+	public int getPlayerID() {
+		return playerID;
+	}
+
+	/**
+	 * Returns the number of ticks the server simulates per second.
+	 *
+	 * @return the tick rate of the server.
+	 */
+	public int getTickRate() {
+		return tickRate;
+	}
+
+	/**
+	 * Returns the prediction of the player's own ship.
+	 *
+	 * @return the {@link ShipPredictor} of the player's ship, or {@code null}
+	 * if the client only watches the game or has not been welcomed yet.
+	 */
+	public ShipPredictor getPredictor() {
+		return predictor;
+	}
+
+	/**
+	 * Returns the latest state received. Do not keep it across calls to
+	 * {@link #poll()}, which reuses it.
+	 *
+	 * @return the latest state of the game.
+	 */
+	public NetworkState getState() {
+		return state;
+	}
+
+	/**
+	 * Returns the number of states received so far.
+	 *
+	 * @return the number of states received.
+	 */
+	public long getStatesReceived() {
+		return statesReceived;
+	}
+
+	/**
+	 * Returns the sequence number of the latest input the server had applied
+	 * when it sent the latest state.
+	 *
+	 * @return the sequence number of the acknowledged input, or 0 if none.
+	 */
+	public int getAckedSequence() {
+		return ackedSequence;
+	}
+
+	/**
+	 * Closes the connection.
+	 */
+	public void close() {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			// Closed anyway
+		}
+	}
+
+	private void handle(ByteBuffer frame) throws IOException {
+		byte type = frame.get();
+		if (type == NetProtocol.WELCOME) {
+			playerID = frame.get();
+			tickRate = frame.getShort();
+			int shipHandle = frame.getInt();
+			if (playerID != NetProtocol.SPECTATOR) {
+				predictor = new ShipPredictor(playerID, shipHandle, tickRate);
+			}
+			welcomed = true;
+		} else if (type == NetProtocol.STATE) {
+			ackedSequence = frame.getInt();
+			int baselineTick = frame.getInt();
+			NetworkState baseline = null;
+			if (baselineTick != -1) {
+				baseline = states[(int) ((baselineTick & 0xffffffffL) %
+						states.length)];
+				if (baseline == null ||
+						baseline.getTick() != (baselineTick & 0xffffffffL)) {
+					throw new IOException("Missing baseline " + baselineTick);
+				}
+			}
+			codec.decode(frame, baseline, decoding);
+
+			// Keep the new state, and reuse the one it replaces
+			int i = (int) (decoding.getTick() % states.length);
+			NetworkState replaced = states[i];
+			states[i] = decoding;
+			state = decoding;
+			decoding = replaced == null ? new NetworkState() : replaced;
+			++statesReceived;
+			if (predictor != null) {
+				predictor.reconcile(state, ackedSequence);
+			}
+		}
+	}
+
+	// Makes room for a frame of the given length in the output buffer
+	private void ensureRoom(int length) {
+		if (out.remaining() < length) {
+			ByteBuffer bigger = ByteBuffer.allocate(Math.max(2*out.capacity(),
+					out.position() + length));
+			out.flip();
+			bigger.put(out);
+			out = bigger;
+		}
+	}
+
+	private void flush() throws IOException {
+		if (out.position() == 0) {
+			return;
+		}
+		out.flip();
+		try {
+			channel.write(out);
+		} finally {
+			out.compact();
+		}
+	}
+
+	/**
+	 * Runs the load test described in the class description.
+	 *
+	 * @param args see the class description
+	 * @throws Exception if a client could not connect
+	 */
+	public static void main(String[] args) throws Exception {
+		String host = "localhost";
+		int port = Config.SERVER_PORT;
+		int count = 100;
+		double seconds = 10;
+		boolean local = false;
+
+		for (int i = 0; i < args.length; ++i) {
+			if (args[i].equals("-local")) {
+				local = true;
+			} else if (args[i].equals("-host") && i+1 < args.length) {
+				host = args[++i];
+			} else if (args[i].equals("-port") && i+1 < args.length) {
+				port = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-clients") && i+1 < args.length) {
+				count = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-seconds") && i+1 < args.length) {
+				seconds = Double.parseDouble(args[++i]);
+			} else {
+				System.err.println("Usage: java GameClient [-local] " +
+						"[-host HOST] [-port N] [-clients N] [-seconds N]");
+				System.exit(1);
+			}
+		}
+
+		GameServer server = null;
+		Thread serverThread = null;
+		if (local) {
+			server = new GameServer(new GalacticCommander(true), 0);
+			port = server.getPort();
+			serverThread = new Thread(server, "Server");
+			serverThread.start();
+		}
+
+		GameClient[] clients = new GameClient[count];
+		for (int i = 0; i < count; ++i) {
+			clients[i] = new GameClient(host, port);
+		}
+
+		// When each client sent its recent inputs, to time their round trip
+		long[][] sent = new long[count][256];
+		Random random = new Random(1);
+		long period = 1000000000L/Config.SIMULATION_RATE;
+		long roundTrips = 0, roundTripTotal = 0, roundTripMax = 0;
+		int failed = 0;
+
+		// Only count the states received from now on
+		long[] initial = new long[count];
+		for (int i = 0; i < count; ++i) {
+			clients[i].poll();
+			initial[i] = clients[i].statesReceived;
+		}
+
+		long start = System.nanoTime();
+		long end = start + (long) (seconds*1e9);
+		long nextInput = start;
+		while (System.nanoTime() < end) {
+			long now = System.nanoTime();
+			boolean input = now >= nextInput;
+			if (input) {
+				nextInput += period;
+			}
+			for (int i = 0; i < count; ++i) {
+				GameClient c = clients[i];
+				if (c == null) {
+					continue;
+				}
+				try {
+					if (input) {
+						int s = c.sendInput(
+								random.nextInt(1 << Keyboard.BUTTON_COUNT));
+						sent[i][s & 0xff] = now;
+					}
+					int acked = c.ackedSequence;
+					c.poll();
+					if (c.ackedSequence != acked && c.ackedSequence > 0) {
+						long t = System.nanoTime() -
+								sent[i][c.ackedSequence & 0xff];
+						++roundTrips;
+						roundTripTotal += t;
+						roundTripMax = Math.max(roundTripMax, t);
+					}
+				} catch (IOException e) {
+					++failed;
+					c.close();
+					clients[i] = null;
+				}
+			}
+			Thread.sleep(1);
+		}
+		double elapsed = (System.nanoTime() - start)/1e9;
+
+		long states = 0;
+		long minStates = Long.MAX_VALUE;
+		for (int i = 0; i < count; ++i) {
+			GameClient c = clients[i];
+			if (c != null) {
+				long received = c.statesReceived - initial[i];
+				states += received;
+				minStates = Math.min(minStates, received);
+				c.close();
+			}
+		}
+		System.out.printf("%d clients, %d failed, %.1f s%n", count, failed,
+				elapsed);
+		System.out.printf("States per client per second: %.1f mean, " +
+				"%.1f min%n", states/elapsed/Math.max(1, count - failed),
+				minStates == Long.MAX_VALUE ? 0 : minStates/elapsed);
+		System.out.printf("Input round trip: %.2f ms mean, %.2f ms max%n",
+				roundTripTotal/1e6/Math.max(1, roundTrips), roundTripMax/1e6);
+
+		if (server != null) {
+			System.out.printf("Server: %d states sent, %d dropped, " +
+					"%d encoded, %.1f MB, %.1f bytes per state%n",
+					server.getStatesSent(), server.getStatesDropped(),
+					server.getStatesEncoded(), server.getBytesSent()/1e6,
+					(double) server.getBytesSent()/
+					Math.max(1, server.getStatesSent()));
+			if (server.getStatesTruncated() > 0) {
+				System.out.printf("Server: %d states truncated to %d " +
+						"objects%n", server.getStatesTruncated(),
+						NetworkState.MAX_OBJECTS);
+			}
+			server.stop();
+			serverThread.join();
+		}
+	}
+}
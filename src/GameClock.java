@@ -0,0 +1,16 @@
+/**
+ * A source of time for the game. The game loop and every {@link GameTimer}
+ * read the time from the game's clock instead of directly from the system, so
+ * that a game can run on simulated time (see {@link VirtualClock}) as well as
+ * in real time (see {@link RealTimeClock}).
+ */
+public interface GameClock {
+	/**
+	 * Returns the current time of this clock in nanoseconds. Like {@link
+	 * System#nanoTime()}, the value is only meaningful relative to other
+	 * values returned by the same clock.
+	 *
+	 * @return the current time in nanoseconds.
+	 */
+	long nanoTime();
+}
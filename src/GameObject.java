@@ -0,0 +1,806 @@
+import java.awt.Graphics2D;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Abstract representation of an object in the game. Asteroids, bases, bullets,
+ * flags, and ships are all examples of game objects. Each of those classes
+ * "extends" this class. That means they have all of the fields and methods
+ * declared in this class as well as the ones declared explicitly in their
+ * source files. Code in those classes can call methods and fields in this class
+ * exactly as if they were defined in the source for those classes.
+ */
+public abstract class GameObject {
+	/**
+	 * The {@link Game} to which this game object belngs.
+	 */
+    private final Game game;
+    
+	/**
+	 * The speed at which this game object is moving, in pixels/sec.
+	 */
+	private double speed;
+	
+	/**
+	 * The position of this game object in pixels.
+	 */
+	private double x, y;
+
+	/**
+	 * The rotation of this game object in radians. Zero is along the
+	 * horizontal axis (i.e., pointing right). Positive values correspond to
+	 * clockwise rotation.
+	 */
+	private double rotation;
+
+	/**
+	 * The unit vector pointing in the direction of {@code rotation}. It is
+	 * updated whenever the rotation is set, so that moving the object does not
+	 * have to compute a sine and cosine at every tick.
+	 */
+	private double headingX, headingY;
+	
+	/**
+	 * The radius of this object in pixels, which is used for collision
+	 * detection. In effect, this value defines the size of the object.
+	 */
+    private double radius;
+
+    /**
+     * If true, this object will be drawn on the screen.
+     */
+    private boolean visible;
+    
+    /**
+     * If true, this object can collide with other objects.
+     */
+    private boolean collidable;
+
+    /**
+     * If true, this object never moves, rotates, or changes its image or
+     * visibility, so it is drawn once into the cached static layer.
+     */
+    private boolean isStatic = false;
+
+    /**
+     * The collision type of this object: one of the types defined in
+     * {@link CollisionType}.
+     */
+    private int collisionType = CollisionType.NONE;
+
+    /**
+     * The collision layer of this object, a single bit given by its type.
+     */
+    private int collisionLayer = 0;
+
+    /**
+     * The collision layers this object can collide with.
+     */
+    private int collisionMask = 0;
+    
+	/**
+	 * The sprite drawn to the screen for this game object.
+	 */
+	private Sprite sprite;
+
+	/**
+	 * The position and rotation of this game object at the start of the
+	 * current tick. The object is drawn in between its previous and current
+	 * position when the game is drawn in between ticks.
+	 */
+	private double previousX, previousY, previousRotation;
+
+	/**
+	 * The {@link EntityStore} holding the state of this game object while it
+	 * is in the game, or {@code null} if the object holds its own state. While
+	 * the object is in a store, the fields above are not used and every
+	 * getter and setter reads and writes the store instead.
+	 */
+	private EntityStore store;
+
+	/**
+	 * The index of this game object in the game's list of objects, which is
+	 * also its index in {@code store}.
+	 */
+	private int slot;
+
+	/**
+	 * The handle of this game object while it is in the game, or {@code
+	 * EntityHandles.NONE}.
+	 */
+	private int handle = EntityHandles.NONE;
+
+	/**
+	 * True once this game object has been removed from the game, until the
+	 * game actually drops it at the end of the tick.
+	 */
+	private boolean removalPending = false;
+
+	/**
+	 * Width of margin around the playable area. If a game object is beyond this
+	 * margin, a warning message will be printed when it is drawn.
+	 */
+	private static final double margin = Config.SHIP_RADIUS+1;
+
+	private static final BasicStroke velocityStroke = new BasicStroke(
+			4.0f,
+			BasicStroke.CAP_ROUND,
+			BasicStroke.JOIN_ROUND);
+	private static final Color velocityPaint = Color.YELLOW;
+
+    private static final float[] dash = {10.0f};
+    private static final BasicStroke boundsStroke = new BasicStroke(
+            2.0f,
+            BasicStroke.CAP_BUTT,
+            BasicStroke.JOIN_MITER,
+            10.0f, dash, 0.0f);
+    private static final Color boundsPaint = Color.GREEN;
+
+	/**
+	 * Initializes a new {@code GameObject} with an initial position and
+	 * collision radius. The speed and rotation are set to zero, and the object
+	 * is not collidable.
+	 * 
+	 * @param game The parent {@link Game}.
+	 * @param position The initial position. The position is copied, so that
+	 * objects never share a position (e.g., one of the constants in {@link
+	 * Config}).
+	 * @param radius The collision radius in pixels.
+	 */
+	protected GameObject(Game game, Position position, double radius) {
+        this.game = game;
+		this.x = position.getX();
+		this.y = position.getY();
+        this.radius = radius;
+		speed = 0;
+		rotation = 0;
+		headingX = 1;
+		headingY = 0;
+		collidable = false;
+		savePreviousState();
+	}
+
+	/**
+	 * Sets the image drawn on screen to the image at the given location.
+	 * 
+	 * @param img path to an image
+	 */
+	public void setImage(String img) {
+		sprite = SpriteStore.getSprite(img);
+	}
+
+	/**
+	 * Returns the sprite drawn on screen, or {@code null} if no image is set.
+	 */
+	Sprite getSprite() {
+		return sprite;
+	}
+
+	/**
+	 * Returns this game object's parent game.
+	 *
+	 * @return the {@link Game} to which this object belongs.
+	 */
+	public Game getGame() {
+		return game;
+	}
+
+	/**
+	 * Updates this game object's location based on the current speed and
+	 * rotation.
+	 * 
+	 * @param deltaTime the time in seconds elapsed since the last update.
+	 */
+	public void updatePosition(double deltaTime) {
+		if (store != null) {
+			double speed = store.speed[slot];
+			if (speed != 0) {
+				store.x[slot] += deltaTime*(speed*store.headingX[slot]);
+				store.y[slot] += deltaTime*(speed*store.headingY[slot]);
+			}
+		} else if (speed != 0) {
+			x += deltaTime*(speed*headingX);
+			y += deltaTime*(speed*headingY);
+		}
+	}
+
+	/**
+	 * Sets the location of this game object.
+	 * <p>
+	 * This method should NOT be used to move the game object in the {@code
+	 * update()} method; use {@code updatePosition()}.
+	 * </p>
+	 *
+	 * @param here the new location of this object.
+	 */
+	public void setPosition(Position here) {
+		setPosition(here.getX(), here.getY());
+	}
+
+	/**
+	 * Sets the location of this game object.
+	 * <p>
+	 * This method should NOT be used to move the game object in the {@code
+	 * update()} method; use {@code updatePosition()}.
+	 * </p>
+	 *
+	 * @param x the new x coordinate of this object.
+	 * @param y the new y coordinate of this object.
+	 */
+	public void setPosition(double x, double y) {
+		// The object jumped here, so don't draw it moving from where it was
+		if (store != null) {
+			store.x[slot] = store.previousX[slot] = x;
+			store.y[slot] = store.previousY[slot] = y;
+		} else {
+			this.x = previousX = x;
+			this.y = previousY = y;
+		}
+	}
+
+	/**
+	 * Remembers the current position and rotation of this game object as its
+	 * state at the start of the tick. This is called automatically by the game
+	 * before each tick.
+	 */
+	void savePreviousState() {
+		if (store != null) {
+			store.previousX[slot] = store.x[slot];
+			store.previousY[slot] = store.y[slot];
+			store.previousRotation[slot] = store.rotation[slot];
+		} else {
+			previousX = x;
+			previousY = y;
+			previousRotation = rotation;
+		}
+	}
+
+	/**
+	 * Returns a copy of this game object's location.
+	 *
+	 * @return a copy of this game object's location.
+	 */
+	public Position getPosition() {
+		return new Position(getX(), getY());
+	}
+
+	/**
+	 * Returns the x coordinate of this game object at the start of the tick.
+	 */
+	double getPreviousX() {
+		return store != null ? store.previousX[slot] : previousX;
+	}
+
+	/**
+	 * Returns the y coordinate of this game object at the start of the tick.
+	 */
+	double getPreviousY() {
+		return store != null ? store.previousY[slot] : previousY;
+	}
+
+	/**
+	 * Returns the rotation of this game object at the start of the tick.
+	 */
+	double getPreviousRotation() {
+		return store != null ? store.previousRotation[slot] : previousRotation;
+	}
+
+	/**
+	 * Returns the x coordinate of this game object's location. Unlike {@code
+	 * getPosition()}, this does not create a new object.
+	 *
+	 * @return the x coordinate in pixels.
+	 */
+	public double getX() {
+		return store != null ? store.x[slot] : x;
+	}
+
+	/**
+	 * Returns the y coordinate of this game object's location. Unlike {@code
+	 * getPosition()}, this does not create a new object.
+	 *
+	 * @return the y coordinate in pixels.
+	 */
+	public double getY() {
+		return store != null ? store.y[slot] : y;
+	}
+
+	/**
+	 * Sets the rotation of this object. The rotation is in radians, and is
+	 * measured relative to the x axis.
+	 *
+	 * @param rotation the angle of rotation in radians.
+	 */
+	public void setRotation(double rotation) {
+		double cos = Math.cos(rotation);
+		double sin = Math.sin(rotation);
+		if (store != null) {
+			store.rotation[slot] = rotation;
+			store.headingX[slot] = cos;
+			store.headingY[slot] = sin;
+		} else {
+			this.rotation = rotation;
+			headingX = cos;
+			headingY = sin;
+		}
+	}
+
+	/**
+	 * Returns the current rotation of this object. The rotation is radians, and
+	 * is measured relative to the x axis.
+	 *
+	 * @return the rotation in radians.
+	 */
+	public double getRotation() {
+		return store != null ? store.rotation[slot] : rotation;
+	}
+
+	/**
+	 * Sets the speed of this object. The speed is measured in pixels/sec.
+	 *
+	 * @param speed the new speed in pixels/sec.
+	 */
+	public void setSpeed(double speed) {
+		if (store != null) {
+			store.speed[slot] = speed;
+		} else {
+			this.speed = speed;
+		}
+	}
+
+	/**
+	 * Returns the current speed of this object. The speed is measured in
+	 * pixels/sec.
+	 *
+	 * @return the speed in pixels/sec.
+	 */
+	public double getSpeed() {
+		return store != null ? store.speed[slot] : speed;
+	}
+
+	/**
+	 * Returns the radius of this object. The radius is measured in pixels.
+	 *
+	 * @return the radius in pixels.
+	 */
+	public double getRadius() {
+		return store != null ? store.radius[slot] : radius;
+	}
+
+	/**
+	 * Determine whether this game object participates in collisions. If the
+	 * argument is set to {@code true}, the game will automatically check if
+	 * this object has collided with any other.
+	 *
+	 * @param collidable {@code true} if this game object should participate in
+	 * collisions.
+	 */
+	public void setCollidable(boolean collidable) {
+		if (store != null) {
+			store.collidable[slot] = collidable;
+		} else {
+			this.collidable = collidable;
+		}
+	}
+
+	/**
+	 * Returns {@code true} if this game object participates in collisions. If
+	 * this object participates in collisions, the game will automatically check
+	 * if this object has collided with any other.
+	 *
+	 * @return {@code true} if this game object participates in collisions.
+	 */
+	public boolean isCollidable() {
+		return store != null ? store.collidable[slot] : collidable;
+	}
+
+	/**
+	 * Sets the collision type of this object to one of the types defined in
+	 * {@link CollisionType}. This also sets the object's collision layer and
+	 * resets its collision mask to the default mask for that type.
+	 * 
+	 * @param type the collision type.
+	 */
+	protected void setCollisionType(int type) {
+		collisionType = type;
+		collisionLayer = CollisionType.layer(type);
+		collisionMask = CollisionType.defaultMask(type);
+	}
+
+	/**
+	 * Returns the collision type of this object, which is used to look up how
+	 * collisions with other objects are handled.
+	 * 
+	 * @return the collision type defined in {@link CollisionType}.
+	 */
+	public int getCollisionType() {
+		return collisionType;
+	}
+
+	/**
+	 * Returns the collision layer of this object.
+	 * 
+	 * @return the layer bit of this object's collision type.
+	 */
+	public int getCollisionLayer() {
+		return collisionLayer;
+	}
+
+	/**
+	 * Sets the collision layers this object can collide with. The game only
+	 * checks two objects for a collision if the layer of one is in the mask
+	 * of the other.
+	 * 
+	 * @param mask the collision mask, a combination of layers.
+	 */
+	public void setCollisionMask(int mask) {
+		collisionMask = mask;
+	}
+
+	/**
+	 * Returns the collision layers this object can collide with.
+	 * 
+	 * @return the collision mask.
+	 */
+	public int getCollisionMask() {
+		return collisionMask;
+	}
+
+	/**
+	 * Returns {@code true} if the collision masks allow this object and {@code
+	 * other} to collide, i.e., if the layer of either object is in the mask of
+	 * the other.
+	 * 
+	 * @param other another {@code GameObject}.
+	 * @return {@code true} if the two objects can interact.
+	 */
+	public boolean canCollideWith(GameObject other) {
+		return (collisionLayer & other.collisionMask) != 0 ||
+			(other.collisionLayer & collisionMask) != 0;
+	}
+
+	/**
+	 * Determine whether this game object is visible on the screen. If the
+	 * argument is set to {@code true}, the game will automatically draw this
+	 * object to the screen at every tick.
+	 *
+	 * @param visible {@code true} if this game object should be visible.
+	 */
+	public void setVisible(boolean visible) {
+		if (store != null) {
+			store.visible[slot] = visible;
+		} else {
+			this.visible = visible;
+		}
+	}
+
+	/**
+	 * Returns {@code true} if this game object is visible on the screen. If
+	 * this object is visible, the game will automatically draw it to the screen
+	 * at every tick.
+	 *
+	 * @return {@code true} if this game object is visible.
+	 */
+	public boolean isVisible() {
+		return store != null ? store.visible[slot] : visible;
+	}
+
+	/**
+	 * Declares whether this game object is static. A static object is drawn
+	 * once into a cached image along with the background, instead of at every
+	 * frame. It must never move, rotate, or change its image or visibility
+	 * while it is in the game; such changes would not show up on the screen.
+	 * This must be set before the object is added to the game.
+	 *
+	 * @param isStatic {@code true} if this game object never changes.
+	 */
+	protected void setStatic(boolean isStatic) {
+		this.isStatic = isStatic;
+	}
+
+	/**
+	 * Returns {@code true} if this game object never changes and is drawn
+	 * into the cached static layer.
+	 *
+	 * @return {@code true} if this game object is static.
+	 */
+	public boolean isStatic() {
+		return isStatic;
+	}
+
+	/**
+	 * Moves the state of this game object into slot {@code slot} of {@code
+	 * store}. Called by the store when the object is added to it.
+	 */
+	void attach(EntityStore store, int slot) {
+		store.x[slot] = x;
+		store.y[slot] = y;
+		store.speed[slot] = speed;
+		store.rotation[slot] = rotation;
+		store.headingX[slot] = headingX;
+		store.headingY[slot] = headingY;
+		store.radius[slot] = radius;
+		store.collidable[slot] = collidable;
+		store.visible[slot] = visible;
+		store.previousX[slot] = previousX;
+		store.previousY[slot] = previousY;
+		store.previousRotation[slot] = previousRotation;
+		this.store = store;
+		this.slot = slot;
+	}
+
+	/**
+	 * Moves the state of this game object back out of its store. Called by
+	 * the store when the object is removed from it.
+	 */
+	void detach() {
+		x = store.x[slot];
+		y = store.y[slot];
+		speed = store.speed[slot];
+		rotation = store.rotation[slot];
+		headingX = store.headingX[slot];
+		headingY = store.headingY[slot];
+		radius = store.radius[slot];
+		collidable = store.collidable[slot];
+		visible = store.visible[slot];
+		previousX = store.previousX[slot];
+		previousY = store.previousY[slot];
+		previousRotation = store.previousRotation[slot];
+		store = null;
+	}
+
+	/**
+	 * Tells this game object that it was moved to index {@code slot} of the
+	 * game's list of objects.
+	 */
+	void setSlot(int slot) {
+		this.slot = slot;
+	}
+
+	/**
+	 * Returns the index of this game object in the game's list of objects.
+	 */
+	int getSlot() {
+		return slot;
+	}
+
+	/**
+	 * Returns the handle of this game object, which stays the same for as
+	 * long as the object is in the game. Unlike a reference to the object, a
+	 * handle can be checked for staleness: once the object is removed, {@link
+	 * Game#getGameObject(int)} returns {@code null} for it.
+	 *
+	 * @return the object's handle, or {@code EntityHandles.NONE} if the
+	 * object is not in a game.
+	 */
+	public int getHandle() {
+		return handle;
+	}
+
+	/**
+	 * Sets the handle of this game object. Called by the game.
+	 */
+	void setHandle(int handle) {
+		this.handle = handle;
+	}
+
+	/**
+	 * Returns {@code true} if this game object has been removed from the game
+	 * during the current tick.
+	 */
+	boolean isRemovalPending() {
+		return removalPending;
+	}
+
+	/**
+	 * Marks whether this game object has been removed during the current
+	 * tick. Called by the game.
+	 */
+	void setRemovalPending(boolean removalPending) {
+		this.removalPending = removalPending;
+	}
+
+	/**
+	 * Writes the state of this game object that changes while the game runs
+	 * to a replay keyframe: its position, rotation, speed, visibility and
+	 * whether it is collidable. Subclasses with more such state override this
+	 * method to write it after calling this one.
+	 */
+	void writeState(DataOutput out) throws IOException {
+		out.writeDouble(getX());
+		out.writeDouble(getY());
+		out.writeDouble(getRotation());
+		out.writeDouble(getSpeed());
+		out.writeBoolean(isVisible());
+		out.writeBoolean(isCollidable());
+	}
+
+	/**
+	 * Reads the state written by {@link #writeState} back into this game
+	 * object. The image is not part of that state; subclasses whose image
+	 * changes set it again from the rest of their state.
+	 */
+	void readState(DataInput in) throws IOException {
+		double x = in.readDouble();
+		double y = in.readDouble();
+		setPosition(x, y);
+		setRotation(in.readDouble());
+		setSpeed(in.readDouble());
+		setVisible(in.readBoolean());
+		setCollidable(in.readBoolean());
+	}
+
+	/**
+	 * Draws this {@code GameObject} to the screen.
+	 * 
+	 * <p><b>DO NOT CALL THIS METHOD IN YOUR CODE!</b> It is called
+	 * automatically when it is time to draw the game.</p>
+	 * @param g
+	 */
+	public void draw(Graphics2D g) {
+		draw(g, 1.0);
+	}
+
+	/**
+	 * Draws this {@code GameObject} to the screen in between its position at
+	 * the start of the current tick and its current position.
+	 * 
+	 * <p><b>DO NOT CALL THIS METHOD IN YOUR CODE!</b> It is called
+	 * automatically when it is time to draw the game.</p>
+	 * @param g
+	 * @param alpha how far to go from the previous position (0) to the current
+	 * position (1).
+	 */
+	public void draw(Graphics2D g, double alpha) {
+		// Don't try to draw the object if it is invisible or does not have an
+		// image set
+		if (!isVisible() || sprite == null) return;
+
+		// Find where the object was at the given point in the tick. The
+		// rotation takes the shorter way around the circle.
+		double previousX = getPreviousX();
+		double previousY = getPreviousY();
+		double previousRotation = getPreviousRotation();
+		double x = previousX + alpha*(getX() - previousX);
+		double y = previousY + alpha*(getY() - previousY);
+		double angle = previousRotation + alpha*Math.IEEEremainder(
+				getRotation() - previousRotation, 2*Math.PI);
+
+		warnIfOffScreen(x, y);
+		draw(g, sprite, x, y, angle, getSpeed(), getRadius());
+	}
+
+	/**
+	 * Prints a warning message if this object is far off the screen when it
+	 * is drawn at the given position.
+	 */
+	void warnIfOffScreen(double x, double y) {
+		if (x < -margin ||
+				x > Config.GAME_WIDTH + margin ||
+				y < -margin ||
+				y > Config.GAME_HEIGHT + margin) {
+			System.err.println("Warning: drawing " + getClass().getName() +
+					" off screen at position " + getPosition());
+		}
+	}
+
+	/**
+	 * Draws a game object's sprite at the given position and angle, along
+	 * with the debugging overlays enabled in {@link Config}.
+	 * 
+	 * @param g the graphics context to draw on
+	 * @param sprite the sprite of the object
+	 * @param x the x coordinate to draw the object at
+	 * @param y the y coordinate to draw the object at
+	 * @param angle the rotation to draw the object at
+	 * @param speed the speed of the object
+	 * @param radius the radius of the object
+	 */
+	@SuppressWarnings("unused")
+	static void draw(Graphics2D g, Sprite sprite, double x, double y,
+			double angle, double speed, double radius) {
+        // Draw the image on the screen
+		sprite.draw(g, x, y, angle);
+
+        // Draw the velocity vector for debugging purposes
+		if (Config.DRAW_VELOCITY && speed != 0) {
+			Position velocity = new Position(speed, 0); 
+			velocity.rotate(angle);
+
+			g.setStroke(velocityStroke);
+			g.setPaint(velocityPaint);
+			g.draw(new Line2D.Double(x, y,
+						x + velocity.getX(),
+						y + velocity.getY()));
+		}
+
+        // Draw the collision bounds for debugging purposes
+        if (Config.DRAW_BOUNDS) {
+            g.setStroke(boundsStroke);
+            g.setPaint(boundsPaint);
+            g.draw(new Ellipse2D.Double(x - radius,
+                        y - radius,
+                        2*radius, 2*radius));
+        }
+	}
+
+	/**
+	 * Computes the area of the screen covered by a sprite drawn at the given
+	 * position with {@code draw}, at any angle.
+	 * 
+	 * @param sprite the sprite
+	 * @param x the x coordinate the sprite is drawn at
+	 * @param y the y coordinate the sprite is drawn at
+	 * @param bounds receives the area
+	 */
+	static void getDrawBounds(Sprite sprite, double x, double y,
+			Rectangle bounds) {
+		double w = sprite.getWidth(), h = sprite.getHeight();
+		int half = (int) Math.ceil(Math.sqrt(w*w + h*h)/2) + 2;
+		bounds.setBounds((int) Math.floor(x) - half, (int) Math.floor(y) - half,
+				2*half + 1, 2*half + 1);
+	}
+
+	/**
+	 * Returns {@code true} if {@code GameObject other} collides with this
+	 * {@code GameObject}. The squared distance between the objects is compared
+	 * with the squared sum of their radii, so no square root is needed.
+	 * <p>
+	 * If {@code Config.SWEPT_COLLISIONS} is set and the objects moved farther
+	 * relative to each other during the tick than the radius of the smaller
+	 * one, they are also tested at every point along the way from their
+	 * previous positions. A fast bullet then hits a ship even if it was in
+	 * front of the ship at the start of the tick and behind it at the end.
+	 * </p>
+	 * <p>
+	 * You should NOT call this method from your code. It is called
+	 * automatically by the game.
+	 * </p>
+	 * 
+	 * @param other another {@code GameObject}.
+	 * @return {@code true} if this {@code GameObject} collides with {@code 
+	 * other}, {@code false} otherwise.
+	 */
+    public boolean collidesWith(GameObject other) {
+        double dx = getX() - other.getX();
+        double dy = getY() - other.getY();
+        double r = getRadius() + other.getRadius();
+        if (dx*dx + dy*dy < r*r) {
+            return true;
+        }
+        if (!Config.SWEPT_COLLISIONS) {
+            return false;
+        }
+
+        // Offset between the objects at the start of the tick, and how it
+        // changed during the tick
+        double sx = getPreviousX() - other.getPreviousX();
+        double sy = getPreviousY() - other.getPreviousY();
+        double mx = dx - sx;
+        double my = dy - sy;
+        double moved = mx*mx + my*my;
+        double minRadius = Math.min(getRadius(), other.getRadius());
+        if (moved <= minRadius*minRadius) {
+            return false;
+        }
+
+        // Find the point in the tick where the objects were closest
+        double t = -(sx*mx + sy*my)/moved;
+        if (t <= 0) {
+            t = 0;
+        } else if (t >= 1) {
+            t = 1;
+        }
+        double cx = sx + t*mx;
+        double cy = sy + t*my;
+        return cx*cx + cy*cy < r*r;
+    }
+
+	public abstract void update(double delta);
+}
@@ -0,0 +1,596 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Runs a headless game on behalf of clients connected over TCP. The server
+ * owns the game: clients only send the buttons their player is pressing, and
+ * the server simulates every tick and sends the resulting state to every
+ * client (see {@link NetProtocol}).
+ * <p>
+ * The first two clients to connect play the game; everyone after them
+ * watches. A player who disconnects frees their slot for the next client to
+ * connect. Each player's inputs are queued and applied one per tick, in the
+ * order they were sent, so that a client can predict its own ship by applying
+ * the same inputs (see {@link ShipPredictor}). All the connections are served
+ * by a single thread using non-blocking sockets, so a slow or stalled client
+ * never holds up the game or the other clients: once {@code
+ * Config.SERVER_MAX_BACKLOG} bytes are waiting to be sent to a client, the
+ * states sent to it are dropped until it catches up.
+ * </p>
+ * <p>
+ * Usage: {@code java GameServer [-ec] [-port N]}
+ * </p>
+ */
+public class GameServer implements Runnable {
+	/**
+	 * Most ticks simulated at once to catch up after the server fell behind.
+	 * Beyond this, the missed ticks are skipped instead.
+	 */
+	private static final int MAX_CATCH_UP = 10;
+
+	/**
+	 * Size of the buffer each client's input is read into. Input frames are
+	 * much smaller than this.
+	 */
+	private static final int INPUT_BUFFER = 256;
+
+	private final Game game;
+	private final Selector selector;
+	private final ServerSocketChannel serverChannel;
+	private final List<Connection> connections = new ArrayList<Connection>();
+
+	/**
+	 * The connection of each player, or {@code null} if nobody is playing.
+	 */
+	private final Connection[] players = new Connection[2];
+
+	/**
+	 * The buttons each player is pressing.
+	 */
+	private final int[] buttons = new int[2];
+
+	/**
+	 * The states sent during the last ticks, indexed by tick modulo their
+	 * number. Each client is sent the difference from the latest of these it
+	 * has acknowledged.
+	 */
+	private final NetworkState[] history =
+		new NetworkState[Config.SNAPSHOT_HISTORY];
+
+	/**
+	 * The current state encoded against each state in {@code history}, with
+	 * the same index, and in full at the last index. Each state is only
+	 * encoded once per tick, however many clients have the same baseline.
+	 */
+	private final ByteBuffer[] encoded =
+		new ByteBuffer[Config.SNAPSHOT_HISTORY + 1];
+
+	/**
+	 * The tick of the state held by each buffer in {@code encoded}.
+	 */
+	private final long[] encodedTick = new long[Config.SNAPSHOT_HISTORY + 1];
+
+	private final SnapshotCodec codec = new SnapshotCodec();
+
+	/**
+	 * The tick of the latest state captured into {@code history}, or -1.
+	 */
+	private long capturedTick = -1;
+
+	private volatile boolean running = true;
+
+	private long statesSent = 0;
+	private long statesDropped = 0;
+	private long statesEncoded = 0;
+	private long statesTruncated = 0;
+	private long bytesSent = 0;
+
+	/**
+	 * A connected client.
+	 */
+	private static class Connection {
+		final SocketChannel channel;
+		final SelectionKey key;
+		final ByteBuffer in = ByteBuffer.allocate(INPUT_BUFFER);
+		ByteBuffer out = ByteBuffer.allocate(4096);
+
+		/**
+		 * The ID of the player this client controls, or {@code
+		 * NetProtocol.SPECTATOR}.
+		 */
+		int playerID = NetProtocol.SPECTATOR;
+
+		/**
+		 * The sequence number of the latest input received from this client.
+		 */
+		int lastSequence = 0;
+
+		/**
+		 * The sequence number of the latest input of this player applied to
+		 * the game.
+		 */
+		int appliedSequence = 0;
+
+		/**
+		 * The tick of the latest state this client has acknowledged, or -1.
+		 */
+		long ackedTick = -1;
+
+		/**
+		 * The tick of the latest state queued to be sent to this client, or
+		 * -1.
+		 */
+		long sentTick = -1;
+
+		/*
+		 * The player's inputs waiting to be applied, oldest first, in a ring.
+		 */
+		final int[] queuedSequence = new int[Config.SERVER_INPUT_QUEUE];
+		final int[] queuedButtons = new int[Config.SERVER_INPUT_QUEUE];
+		int queueStart = 0;
+		int queueSize = 0;
+
+		Connection(SocketChannel channel, SelectionKey key) {
+			this.channel = channel;
+			this.key = key;
+		}
+	}
+
+	/**
+	 * Creates a server for a game and starts listening for clients. The game
+	 * is initialized here and must not have been initialized before. Call
+	 * {@link #run()} to start the game.
+	 *
+	 * @param game a headless game
+	 * @param port the TCP port to listen on, or 0 for any free port
+	 * @throws IOException if the server could not listen on the port
+	 */
+	public GameServer(Game game, int port) throws IOException {
+		this.game = game;
+		for (int i = 0; i < history.length; ++i) {
+			history[i] = new NetworkState();
+		}
+		Arrays.fill(encodedTick, -1);
+		game.addInputSource(new InputSource() {
+			public int getButtons(Game game) {
+				return buttons[Config.PLAYER1_ID] | buttons[Config.PLAYER2_ID];
+			}
+		});
+		game.initGame();
+
+		selector = Selector.open();
+		serverChannel = ServerSocketChannel.open();
+		serverChannel.socket().setReuseAddress(true);
+		serverChannel.socket().bind(new InetSocketAddress(port));
+		serverChannel.configureBlocking(false);
+		serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+	}
+
+	/**
+	 * Returns the TCP port the server is listening on.
+	 *
+	 * @return the port of the server.
+	 */
+	public int getPort() {
+		return serverChannel.socket().getLocalPort();
+	}
+
+	/**
+	 * Simulates the game {@code Config.SIMULATION_RATE} times per second and
+	 * serves the clients in between, until {@link #stop()} is called. Once
+	 * the game has ended, it is no longer stepped, and its final state is
+	 * sent once to each client, including the clients that connect later.
+	 */
+	public void run() {
+		long period = 1000000000L/Config.SIMULATION_RATE;
+		double deltaTime = 1.0/Config.SIMULATION_RATE;
+		long nextTick = System.nanoTime();
+		try {
+			while (running) {
+				// Serve the clients until the next tick is due
+				long wait = nextTick - System.nanoTime();
+				if (wait >= 1000000) {
+					selector.select(wait/1000000);
+				} else {
+					selector.selectNow();
+				}
+				serve();
+
+				long now = System.nanoTime();
+				if (now - nextTick < 0) {
+					continue;
+				}
+				for (int i = 0; i < MAX_CATCH_UP && now - nextTick >= 0; ++i) {
+					if (!game.hasEnded()) {
+						applyInputs();
+						game.step(deltaTime);
+					}
+					nextTick += period;
+				}
+				if (now - nextTick >= 0) {
+					// Too far behind to catch up
+					nextTick = now + period;
+				}
+				broadcast();
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		} finally {
+			for (Connection c : new ArrayList<Connection>(connections)) {
+				close(c);
+			}
+			try {
+				serverChannel.close();
+				selector.close();
+			} catch (IOException e) {
+				// Nothing left to do
+			}
+		}
+	}
+
+	/**
+	 * Stops the server. This may be called from any thread.
+	 */
+	public void stop() {
+		running = false;
+		selector.wakeup();
+	}
+
+	/**
+	 * Returns the number of clients connected.
+	 *
+	 * @return the number of clients.
+	 */
+	public int getConnectionCount() {
+		return connections.size();
+	}
+
+	/**
+	 * Returns the number of states queued to be sent to clients so far.
+	 *
+	 * @return the number of states sent.
+	 */
+	public long getStatesSent() {
+		return statesSent;
+	}
+
+	/**
+	 * Returns the number of states not sent to a client because too much was
+	 * waiting to be sent to it already.
+	 *
+	 * @return the number of states dropped.
+	 */
+	public long getStatesDropped() {
+		return statesDropped;
+	}
+
+	/**
+	 * Returns the number of times a state was encoded. Clients that have
+	 * acknowledged the same state share the same encoding, so this is usually
+	 * much less than {@link #getStatesSent()}.
+	 *
+	 * @return the number of states encoded.
+	 */
+	public long getStatesEncoded() {
+		return statesEncoded;
+	}
+
+	/**
+	 * Returns the number of ticks whose state left out some of the game's
+	 * objects, because there were more than {@code
+	 * NetworkState.MAX_OBJECTS}.
+	 *
+	 * @return the number of states truncated.
+	 */
+	public long getStatesTruncated() {
+		return statesTruncated;
+	}
+
+	/**
+	 * Returns the number of bytes written to the clients so far.
+	 *
+	 * @return the number of bytes sent.
+	 */
+	public long getBytesSent() {
+		return bytesSent;
+	}
+
+	/**
+	 * Handles the keys the selector found ready.
+	 */
+	private void serve() throws IOException {
+		Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+		while (keys.hasNext()) {
+			SelectionKey key = keys.next();
+			keys.remove();
+			if (!key.isValid()) {
+				continue;
+			}
+			if (key.isAcceptable()) {
+				accept();
+				continue;
+			}
+
+			Connection c = (Connection) key.attachment();
+			try {
+				if (key.isReadable()) {
+					read(c);
+				}
+				if (key.isValid() && key.isWritable()) {
+					flush(c);
+				}
+			} catch (IOException e) {
+				// The client went away
+				close(c);
+			}
+		}
+	}
+
+	/**
+	 * Accepts a new client, and makes it a player if a slot is free.
+	 */
+	private void accept() throws IOException {
+		SocketChannel channel = serverChannel.accept();
+		if (channel == null) {
+			return;
+		}
+		channel.configureBlocking(false);
+		channel.socket().setTcpNoDelay(true);
+		SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+		Connection c = new Connection(channel, key);
+		key.attach(c);
+		connections.add(c);
+
+		for (int i = 0; i < players.length; ++i) {
+			if (players[i] == null) {
+				players[i] = c;
+				c.playerID = i;
+				break;
+			}
+		}
+
+		int start = NetProtocol.beginFrame(c.out, NetProtocol.WELCOME);
+		c.out.put((byte) c.playerID);
+		c.out.putShort((short) Config.SIMULATION_RATE);
+		c.out.putInt(c.playerID == NetProtocol.SPECTATOR ? EntityHandles.NONE :
+			game.getShip(c.playerID).getHandle());
+		NetProtocol.endFrame(c.out, start);
+		try {
+			flush(c);
+		} catch (IOException e) {
+			close(c);
+		}
+	}
+
+	/**
+	 * Reads and handles the frames a client has sent.
+	 */
+	private void read(Connection c) throws IOException {
+		if (c.channel.read(c.in) < 0) {
+			throw new IOException("Connection closed");
+		}
+		c.in.flip();
+		ByteBuffer frame;
+		while ((frame = NetProtocol.nextFrame(c.in)) != null) {
+			byte type = frame.get();
+			if (type == NetProtocol.ACK && frame.remaining() >= 4) {
+				long tick = frame.getInt() & 0xffffffffL;
+				if (tick > c.ackedTick) {
+					c.ackedTick = tick;
+				}
+			} else if (type == NetProtocol.INPUT && frame.remaining() >= 6) {
+				int sequence = frame.getInt();
+				int pressed = frame.getShort() & 0xffff;
+				if (sequence - c.lastSequence > 0) {
+					c.lastSequence = sequence;
+					if (c.playerID != NetProtocol.SPECTATOR) {
+						queueInput(c, sequence, pressed &
+								NetProtocol.PLAYER_BUTTONS[c.playerID]);
+					}
+				}
+			}
+		}
+		c.in.compact();
+		if (!c.in.hasRemaining()) {
+			// A frame longer than any the client should send
+			throw new IOException("Frame too long");
+		}
+	}
+
+	/**
+	 * Adds an input to the end of a player's queue, dropping the oldest input
+	 * if the queue is full.
+	 */
+	private void queueInput(Connection c, int sequence, int pressed) {
+		int capacity = c.queuedSequence.length;
+		if (c.queueSize == capacity) {
+			c.queueStart = (c.queueStart + 1) % capacity;
+			--c.queueSize;
+		}
+		int i = (c.queueStart + c.queueSize) % capacity;
+		c.queuedSequence[i] = sequence;
+		c.queuedButtons[i] = pressed;
+		++c.queueSize;
+	}
+
+	/**
+	 * Takes the next input of each player off their queue, to be applied
+	 * during the coming tick. A player whose queue is empty keeps pressing
+	 * the same buttons.
+	 */
+	private void applyInputs() {
+		for (Connection c : players) {
+			if (c == null || c.queueSize == 0) {
+				continue;
+			}
+			buttons[c.playerID] = c.queuedButtons[c.queueStart];
+			c.appliedSequence = c.queuedSequence[c.queueStart];
+			c.queueStart = (c.queueStart + 1) % c.queuedSequence.length;
+			--c.queueSize;
+		}
+	}
+
+	/**
+	 * Sends the current state of the game to every client that has not been
+	 * sent it yet. While the game is running, this is every client after each
+	 * tick; once it has ended, only the clients that connected since, or
+	 * whose copy of the final state was dropped.
+	 */
+	private void broadcast() {
+		long tick = game.getTicks();
+		NetworkState state = history[(int) (tick % history.length)];
+		if (capturedTick != tick) {
+			state.capture(game);
+			capturedTick = tick;
+			if (state.getOmittedCount() > 0) {
+				++statesTruncated;
+			}
+		}
+
+		for (Connection c : new ArrayList<Connection>(connections)) {
+			if (c.sentTick == tick) {
+				continue;
+			}
+			NetworkState baseline = getBaseline(c.ackedTick, tick);
+			ByteBuffer body = encode(state, baseline);
+			int length = NetProtocol.HEADER_BYTES + 9 + body.remaining();
+			if (c.out.position() + length > Config.SERVER_MAX_BACKLOG) {
+				++statesDropped;
+				continue;
+			}
+			if (c.out.remaining() < length) {
+				ByteBuffer out = ByteBuffer.allocate(Math.min(
+						Config.SERVER_MAX_BACKLOG, Math.max(2*c.out.capacity(),
+								c.out.position() + length)));
+				c.out.flip();
+				out.put(c.out);
+				c.out = out;
+			}
+			int start = NetProtocol.beginFrame(c.out, NetProtocol.STATE);
+			c.out.putInt(c.playerID == NetProtocol.SPECTATOR ?
+					c.lastSequence : c.appliedSequence);
+			c.out.putInt(baseline == null ? -1 : (int) baseline.getTick());
+			c.out.put(body);
+			NetProtocol.endFrame(c.out, start);
+			c.sentTick = tick;
+			++statesSent;
+
+			try {
+				flush(c);
+			} catch (IOException e) {
+				close(c);
+			}
+		}
+	}
+
+	/**
+	 * Returns the state a client has acknowledged, if it is still in the
+	 * history and can be used as the baseline of the state of the given tick.
+	 */
+	private NetworkState getBaseline(long ackedTick, long tick) {
+		if (ackedTick < 0 || ackedTick > tick ||
+				tick - ackedTick >= history.length) {
+			return null;
+		}
+		NetworkState baseline = history[(int) (ackedTick % history.length)];
+		return baseline.getTick() == ackedTick ? baseline : null;
+	}
+
+	/**
+	 * Returns the current state encoded against a baseline, encoding it if
+	 * it has not been encoded against that baseline during this tick yet.
+	 */
+	private ByteBuffer encode(NetworkState state, NetworkState baseline) {
+		int i = baseline == null ? history.length :
+			(int) (baseline.getTick() % history.length);
+		if (encoded[i] == null) {
+			encoded[i] = ByteBuffer.allocate(NetProtocol.MAX_PAYLOAD);
+		}
+		if (encodedTick[i] != state.getTick()) {
+			encoded[i].clear();
+			codec.encode(state, baseline, encoded[i]);
+			encoded[i].flip();
+			encodedTick[i] = state.getTick();
+			++statesEncoded;
+		}
+		return encoded[i].duplicate();
+	}
+
+	/**
+	 * Writes as much of what is waiting to be sent to a client as the socket
+	 * accepts, and asks to be told when it accepts more.
+	 */
+	private void flush(Connection c) throws IOException {
+		c.out.flip();
+		try {
+			bytesSent += c.channel.write(c.out);
+		} finally {
+			c.out.compact();
+		}
+		if (c.out.position() > 0) {
+			c.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+		} else {
+			c.key.interestOps(SelectionKey.OP_READ);
+		}
+	}
+
+	/**
+	 * Disconnects a client, and frees its player's slot.
+	 */
+	private void close(Connection c) {
+		if (!connections.remove(c)) {
+			return;
+		}
+		if (c.playerID != NetProtocol.SPECTATOR) {
+			players[c.playerID] = null;
+			buttons[c.playerID] = 0;
+		}
+		c.key.cancel();
+		try {
+			c.channel.close();
+		} catch (IOException e) {
+			// Closed anyway
+		}
+	}
+
+	/**
+	 * Starts a server and runs it until the program is killed.
+	 *
+	 * @param args see the class description
+	 * @throws IOException if the server could not be started
+	 */
+	public static void main(String[] args) throws IOException {
+		boolean extraCredit = false;
+		int port = Config.SERVER_PORT;
+
+		for (int i = 0; i < args.length; ++i) {
+			if (args[i].equals("-ec")) {
+				extraCredit = true;
+			} else if (args[i].equals("-port") && i+1 < args.length) {
+				port = Integer.parseInt(args[++i]);
+			} else {
+				System.err.println("Usage: java GameServer [-ec] [-port N]");
+				System.exit(1);
+			}
+		}
+
+		Game game;
+		if (extraCredit) {
+			game = new GalacticCommanderEC(true);
+		} else {
+			game = new GalacticCommander(true);
+		}
+		GameServer server = new GameServer(game, port);
+		System.out.println("Listening on port " + server.getPort());
+		server.run();
+	}
+}
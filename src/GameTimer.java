@@ -0,0 +1,81 @@
+/**
+ * This class represents a Timer. In general use in a
+ * class, a GameTimer object must be created first.
+ * At any point in the game, you can start the timer by
+ * calling {@code startTimer} and subsequently checking
+ * to see if the timer has expired using {@code 
+ * hasTimerExpired}. If the expiration check is done
+ * before starting the timer, it will act as if it is
+ * expired.  
+ */
+public class GameTimer {
+	/**
+	 * The starting time for the the timer set by
+	 * calling {@code startTimer}
+	 */
+	private long startTime;	
+	/**
+	 * Indicates if the timer has been started 
+	 */
+	private boolean hasStarted;
+	/**
+	 * Duration of the timer before it expires 
+	 */
+	private long duration;
+	/**
+	 * The clock used to measure time
+	 */
+	private final GameClock clock;
+	
+	/**
+	 * Creates a timer that measures real time.
+	 */
+	public GameTimer() {
+		this(RealTimeClock.INSTANCE);
+	}
+	
+	/**
+	 * Creates a timer that measures time using the given clock. Game objects
+	 * should use their game's clock (see {@link Game#getClock()}), so that
+	 * their timers run on the game's time.
+	 * 
+	 * @param clock the clock to read the time from
+	 */
+	public GameTimer(GameClock clock) {
+		this.clock = clock;
+		startTime = 0;
+		hasStarted = false;
+	}
+	
+	/**
+     * Checks to see if the current timer has expired.
+     * Calling this before calling {@code startTimer} will
+     * cause this to return true.
+     * 
+     * @return {@code true} if the timer has expired.
+     */
+	public boolean hasTimerExpired() {
+		if (hasStarted) {
+			long elapsedTime = (clock.nanoTime() - startTime)/1000000;
+			if (elapsedTime >= duration) {
+				hasStarted = false;
+				return true;
+			}
+	        return false;
+		}
+		else {
+			return true;
+		}
+    }
+	
+	/**
+     * Initializes the timer with the current game time. 
+     * 
+     * @param duration number of milliseconds to expiration
+     */
+	public void startTimer(long duration) {
+		this.startTime = clock.nanoTime();
+		this.duration = duration;
+		this.hasStarted = true;
+	}
+}
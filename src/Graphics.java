@@ -0,0 +1,447 @@
+import java.awt.Canvas;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.awt.image.BufferStrategy;
+import java.io.IOException;
+
+import javax.swing.JFrame;
+import javax.swing.JPanel;
+
+/**
+ * This class draws the game to the screen. It draws all the game objects,
+ * frame by frame, onto the screen and also sets up a graphics environment in
+ * Java.
+ * 
+ * <p><b>DO NOT ADD, REMOVE, OR RENAME VARIABLES IN THIS FILE.</b> Your code 
+ * must work with all legal values for any of these variables. You will,
+ * however need to use some of the methods in this class for displaying text.
+ * </p>
+ * <p>
+ * To display text in the game, you need to use one of the 4 panels, that 
+ * is available for you to use. A standard font & color of the text in these
+ * panels is preset. To change the color, the font or the text of any of the
+ * text panels, make the appropriate method calls.
+ * </p>
+ */
+@SuppressWarnings("serial")
+public class Graphics extends Canvas{
+	
+	/*
+	 * GRAPHICS TEXT PANEL CONSTANTS
+	 */
+	
+	/*
+	 * The text panel to screen left
+	 */
+	public static final int LEFT_PANEL = 0;
+	/*
+	 * The text panel to screen right
+	 */
+	public static final int RIGHT_PANEL = 1;
+	/*
+	 * The text panel at screen center
+	 */
+	public static final int CENTER_PANEL = 2;
+	/*
+	 * The text panel at screen bottom
+	 */
+	public static final int BOTTOM_PANEL = 3;
+	
+	/*
+	 * The text panels, which hold all the data required to display text on
+	 * the screen.
+	 */
+	private TextPanel [] displaytexts = new TextPanel[4];
+    
+	/**
+	 * Reference to the game object
+	 */
+	Game game;
+	
+	/*
+	 * The basic elements for graphics
+	 */
+	
+	/**
+	 * JFrame - The game window with its features
+	 */
+	JFrame container;
+
+	/**
+	 * JPanel - A drawing context in the window 
+	 */
+	JPanel panel;	
+
+	/**
+	 * BufferStrategy - Buffers the context, so as to avoid flickering 
+	 */
+	BufferStrategy strategy;
+	
+	/**
+	 * Sprite to draw the background 
+	 */
+	Sprite background; 
+
+	/**
+	 * If true, nothing is drawn and no window is created
+	 */
+	boolean headless;
+
+	/**
+	 * Draws the frames, redrawing only what changed since the previous frame
+	 */
+	LayeredRenderer renderer;
+
+	/**
+	 * The snapshot of the game drawn by {@code draw} when there is no render
+	 * thread
+	 */
+	RenderSnapshot snapshot;
+
+	/**
+	 * The thread that draws the game if {@link Config#RENDER_THREAD} is set,
+	 * or {@code null}
+	 */
+	RenderThread renderThread;
+
+	/**
+	 * Guards {@code redrawRequested}
+	 */
+	private final Object redrawLock = new Object();
+
+	/**
+	 * True if the screen has been invalidated since it was last drawn while
+	 * idle
+	 */
+	private boolean redrawRequested = false;
+
+	/**
+	 * Creates a new Graphics object and initializes all the graphics
+	 * settings and text panel settings.
+	 * 
+	 * @param game the {@link Game} to which this Base belongs.
+	 */
+	public Graphics(Game game) throws IOException {
+		this(game, false);
+	}
+
+	/**
+	 * Creates a new Graphics object and initializes all the graphics
+	 * settings and text panel settings. A headless Graphics object does not
+	 * open a window and does not draw anything, but the text panels can still
+	 * be set as usual. This allows the game to run without a display.
+	 * 
+	 * @param game the {@link Game} to which this Base belongs.
+	 * @param headless {@code true} if nothing should be drawn.
+	 */
+	public Graphics(Game game, boolean headless) throws IOException {
+        this.game = game;
+        this.headless = headless;
+        
+		initDisplayTexts(displaytexts);
+		if (headless) {
+			return;
+		}
+
+        //Create a new window
+		container = new JFrame(Config.GAME_TITLE);
+		//Get the context for drawing in the window
+		panel = (JPanel) container.getContentPane();
+		panel.setPreferredSize(new Dimension(Config.GAME_WIDTH,
+					Config.GAME_HEIGHT));
+		panel.setLayout(null);
+
+		// setup our canvas size and put it into the content of the frame
+		setBounds(0,0,Config.GAME_WIDTH, Config.GAME_HEIGHT);
+		panel.add(this);
+		
+		// Tell AWT to ignore our canvas since we'll paint it ourselves
+		setIgnoreRepaint(true);
+		
+		// finally make the window visible 
+		container.pack();
+		container.setResizable(false);
+		container.setVisible(true);
+
+		// Add an input handler for keyboard input
+		container.addKeyListener(game.getKeyboard());
+
+		// Redraw the screen on input while the game is idle
+		container.addKeyListener(new KeyAdapter() {
+			public void keyPressed(KeyEvent e) {
+				requestRedraw();
+			}
+
+			public void keyReleased(KeyEvent e) {
+				requestRedraw();
+			}
+		});
+
+		// Exit the game if the user closes the window.
+		container.addWindowListener(new WindowAdapter() {
+			public void windowClosing(WindowEvent e) {
+				System.exit(0);
+			}
+
+			public void windowDeiconified(WindowEvent e) {
+				requestRedraw();
+			}
+
+			public void windowActivated(WindowEvent e) {
+				requestRedraw();
+			}
+		});
+		
+		//Create and initialize objects to handle buffer
+		createBufferStrategy(2);
+		strategy = getBufferStrategy();
+		
+		// Decode all the images up front, so that the game loop never has to
+		if (Config.PRELOAD_IMAGES) {
+			SpriteStore.preload();
+		}
+
+		//Create a sprite to display the background image
+		background = SpriteStore.getSprite(Config.BACKGROUND_IMG);
+
+		// The renderer draws its own copy of the text panels, which is updated
+		// from each snapshot, so that it never reads the panels while the game
+		// is changing them
+		TextPanel[] shownTexts = new TextPanel[displaytexts.length];
+		initDisplayTexts(shownTexts);
+		renderer = new LayeredRenderer(this, background, shownTexts);
+
+		if (Config.RENDER_THREAD) {
+			renderThread = new RenderThread(this, game.getClock());
+			renderThread.start();
+		} else {
+			snapshot = new RenderSnapshot();
+		}
+	}
+
+	/**
+	 * Initializes the text panels with the default font, color and location.
+	 */
+	private static void initDisplayTexts(TextPanel[] displaytexts) {
+		//Initilize various text panel locations on screen, with the default
+		//font and color
+		Position[] positions = new Position[displaytexts.length];
+		positions[LEFT_PANEL] = new Position( 
+				100,
+				100);
+		positions[RIGHT_PANEL] = new Position(
+				Config.GAME_WIDTH - 100, 
+				100);
+		positions[CENTER_PANEL] = new Position(
+				Config.GAME_WIDTH/2,
+				Config.GAME_HEIGHT/2);
+		positions[BOTTOM_PANEL] = new Position(
+				Config.GAME_WIDTH/2,
+				Config.GAME_HEIGHT-100);
+		for ( int i=0; i<displaytexts.length; i++) {
+			displaytexts[i] = new TextPanel(positions[i],
+					new Font("Serif",Font.PLAIN, 20), Color.white);
+		}
+	}
+
+	/**
+	 * The main draw method. This gets called every frame. 
+	 * Essentially, it takes a snapshot of the game, redraws what changed
+	 * since the previous frame, copies the frame to the screen and flips the
+	 * buffer. With a render thread, the snapshot is handed to the render
+	 * thread instead.
+	 */
+	public void draw() {
+		draw(1.0);
+	}
+
+	/**
+	 * Draws the game in between two ticks. Each game object is drawn at the
+	 * given fraction of the way from its position at the start of the tick to
+	 * its current position. 
+	 * 
+	 * @param alpha how far the current tick has progressed, from 0 to 1.
+	 */
+	public void draw(double alpha) {
+		// There is nothing to draw on without a display
+		if (headless) {
+			return;
+		}
+
+		if (renderThread != null) {
+			renderThread.getSnapshot().capture(game, displaytexts, alpha);
+			renderThread.publish();
+		} else {
+			snapshot.capture(game, displaytexts, alpha);
+			present(snapshot, alpha);
+		}
+	}
+
+	/**
+	 * Draws a snapshot of the game onto the screen. This is called on the
+	 * render thread if there is one.
+	 * 
+	 * @param snapshot the snapshot to draw
+	 * @param alpha how far the tick has progressed, from 0 to 1.
+	 */
+	void present(RenderSnapshot snapshot, double alpha) {
+        // Get hold of a graphics context for the accelerated surface
+        Graphics2D g = (Graphics2D) strategy.getDrawGraphics();
+
+        // Bring the frame up to date and copy it onto the surface. The
+        // background, bases and asteroids come from a cached layer, and only
+        // the areas around moving objects and changed text are redrawn.
+        renderer.render(g, snapshot, alpha);
+		
+        // finally, we've completed drawing so clear up the graphics and
+        // flip the buffer over
+        g.dispose();
+        strategy.show();
+	}
+
+	/**
+	 * Declares whether the game is idle, i.e. ended or paused. While the game
+	 * is idle, the game loop only draws the screen after it has been
+	 * invalidated, so the window's paint requests are handled instead of
+	 * ignored.
+	 * 
+	 * @param idle {@code true} if the game is idle.
+	 */
+	void setIdle(boolean idle) {
+		synchronized (redrawLock) {
+			redrawRequested = false;
+		}
+		if (!headless) {
+			setIgnoreRepaint(!idle);
+		}
+	}
+
+	/**
+	 * Invalidates the screen, so that an idle game draws it again. This may
+	 * be called from any thread.
+	 */
+	public void requestRedraw() {
+		synchronized (redrawLock) {
+			redrawRequested = true;
+			redrawLock.notifyAll();
+		}
+	}
+
+	/**
+	 * Waits until the screen has been invalidated with {@link
+	 * #requestRedraw()}.
+	 */
+	void awaitInvalidation() {
+		synchronized (redrawLock) {
+			while (!redrawRequested) {
+				try {
+					redrawLock.wait();
+				} catch (InterruptedException e) { }
+			}
+			redrawRequested = false;
+		}
+	}
+
+	/**
+	 * Called by AWT when the window has been exposed while the game is idle.
+	 * The screen is drawn by the game loop, so this just invalidates it.
+	 */
+	public void paint(java.awt.Graphics g) {
+		requestRedraw();
+	}
+
+	/**
+	 * Called by AWT to redraw the canvas; see {@link
+	 * #paint(java.awt.Graphics)}.
+	 */
+	public void update(java.awt.Graphics g) {
+		requestRedraw();
+	}
+
+	/**
+	 * Returns {@code true} if this Graphics object does not draw anything.
+	 * 
+	 * @return {@code true} if the game is running without a display.
+	 */
+	public boolean isHeadless() {
+		return headless;
+	}
+
+	/**
+	 * Sets the text of a particular text panel. 
+	 * 
+	 * @param panel the text panel whose text is to be set. Use the 
+	 * 		  appropriate panel like this : {@code Graphics.LEFT_PANEL}
+	 * @param text the text that is to displayed.
+	 */
+	public void setPanelText(int panel, String text) {
+		if ( panel < 0 || panel >= displaytexts.length) {
+			throw new IllegalArgumentException("Panel choice out of bounds.");
+		}
+		displaytexts[panel].setText(text);
+		requestRedraw();
+	}
+	
+	
+	/**
+	 * Sets the font of the text of a particular text panel. Make sure
+	 * you use exact the exact names for fonts as given below. Also, not 
+	 * all fonts may work on your system. 
+	 * 
+	 * Fonts : "Times New Roman", "Comic Sans MS", "Arial", "Arial Black"
+	 * Refer : http://www.ampsoft.net/webdesign-l/WindowsMacFonts.html for
+	 * more
+	 * 
+	 * @param panel the text panel whose text is to be set. Use the 
+	 * 		  appropriate panel like this : {@code Graphics.LEFT_PANEL}
+	 * @param font the font of the text that is to displayed.
+	 * @param fontSize the size of the font
+	 */
+	public void setPanelFont(int panel, String font, int fontSize) {
+		if ( panel < 0 || panel >= displaytexts.length) {
+			throw new IllegalArgumentException("Panel choice out of bounds.");
+		}
+		displaytexts[panel].setFont(new Font(font, Font.PLAIN, fontSize));
+		requestRedraw();
+	}
+	
+	/**
+	 * Sets the color of a particular text panel. 
+	 * You may use another color if you want, but make sure you add the
+	 * correct code for that in this method. DO NOT CHANGE THE HEADER OF THIS
+	 * METHOD.
+	 * 
+	 * @param panel the text panel whose color is to be set. Use the 
+	 * 		  appropriate panel like this : {@code Graphics.LEFT_PANEL}
+	 * @param color the color of the text that is to displayed. Use of these
+	 * 		  "white", "red", "blue", "green", "yellow", "orange"
+	 */
+	public void setPanelColor(int panel, String color) {
+		if ( panel < 0 || panel >= displaytexts.length) {
+			throw new IllegalArgumentException("Panel choice out of bounds.");
+		}
+		if (color.equals("black") )
+			displaytexts[panel].setColor(Color.black);
+		else if (color.equals("white") )
+			displaytexts[panel].setColor(Color.white);
+		else if (color.equals("red") )
+			displaytexts[panel].setColor(Color.red);
+		else if (color.equals("blue") )
+			displaytexts[panel].setColor(Color.blue);
+		else if (color.equals("green") )
+			displaytexts[panel].setColor(Color.green);
+		else if (color.equals("yellow") )
+			displaytexts[panel].setColor(Color.yellow);
+		else if (color.equals("orange") )
+			displaytexts[panel].setColor(Color.orange);
+		requestRedraw();
+	}
+	
+}
+
@@ -0,0 +1,276 @@
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps decoded images on disk, so that they do not have to be decoded again
+ * the next time the game starts. Each image is stored as premultiplied ARGB
+ * pixels in a file named after the SHA-1 hash of the encoded image, so an
+ * image that changes simply gets a new entry. Entries are read by mapping the
+ * file into memory, which is much faster than decoding a PNG.
+ * <p>
+ * The directory of the cache is created readable and writable by its owner
+ * only, and each entry holds a checksum of its pixels that is checked when
+ * it is read. Entries that no image refers to any more are deleted with
+ * {@link #retainOnly(Set)}.
+ * </p>
+ * <p>
+ * The cache never makes loading an image fail: a missing, damaged or
+ * unwritable entry just means that the image is decoded as usual. Do not
+ * use this class directly in your code.
+ * </p>
+ *
+ * @see Config#IMAGE_CACHE
+ */
+public class ImageCache {
+	/**
+	 * Identifies a cache entry, and the version of its format.
+	 */
+	private static final int MAGIC = 0x47434932; // "GCI2"
+
+	/**
+	 * Size of the header: the magic number, the width, the height and the
+	 * CRC-32 of the pixels.
+	 */
+	private static final int HEADER_BYTES = 16;
+
+	/**
+	 * Length of a key: 40 hexadecimal digits.
+	 */
+	private static final int KEY_LENGTH = 40;
+
+	/**
+	 * Number of bytes checksummed at a time when an entry is read.
+	 */
+	private static final int CHUNK_SIZE = 64*1024;
+
+	private final File directory;
+
+	/**
+	 * Creates a cache that keeps its entries in the given directory. The
+	 * directory is created when the first entry is written, and only its
+	 * owner may read or write it.
+	 *
+	 * @param directory the directory of the cache
+	 */
+	public ImageCache(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Returns the key of an encoded image: the hexadecimal SHA-1 hash of its
+	 * bytes.
+	 *
+	 * @param data the encoded image
+	 * @return the key of the image.
+	 */
+	public static String key(byte[] data) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(data);
+			StringBuilder key = new StringBuilder();
+			for (byte b : digest) {
+				key.append(String.format("%02x", b & 0xff));
+			}
+			return key.toString();
+		} catch (NoSuchAlgorithmException e) {
+			// Every Java platform is required to support SHA-1
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Returns the image stored under the given key.
+	 *
+	 * @param key the key of the image
+	 * @return a {@code TYPE_INT_ARGB_PRE} image, or {@code null} if there is
+	 * no valid entry for the key.
+	 */
+	public BufferedImage get(String key) {
+		File file = new File(directory, key);
+		if (!file.isFile()) {
+			return null;
+		}
+		try {
+			RandomAccessFile in = new RandomAccessFile(file, "r");
+			try {
+				FileChannel channel = in.getChannel();
+				MappedByteBuffer buffer = channel.map(
+						FileChannel.MapMode.READ_ONLY, 0, channel.size());
+				if (buffer.capacity() < HEADER_BYTES ||
+						buffer.getInt(0) != MAGIC) {
+					return null;
+				}
+				int width = buffer.getInt(4), height = buffer.getInt(8);
+				if (width <= 0 || height <= 0 || buffer.capacity() !=
+						HEADER_BYTES + 4L*width*height) {
+					return null;
+				}
+
+				// Check the pixels before trusting them
+				buffer.position(HEADER_BYTES);
+				if (checksum(buffer) != buffer.getInt(12)) {
+					return null;
+				}
+
+				// Copy the pixels straight into the image's own array
+				BufferedImage image = new BufferedImage(width, height,
+						BufferedImage.TYPE_INT_ARGB_PRE);
+				buffer.position(HEADER_BYTES);
+				buffer.asIntBuffer().get(pixels(image));
+				return image;
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Stores an image under the given key. The entry is written to a
+	 * temporary file first and then renamed, so that a reader never sees a
+	 * partly written entry.
+	 *
+	 * @param key the key of the image
+	 * @param image a {@code TYPE_INT_ARGB_PRE} image
+	 */
+	public void put(String key, BufferedImage image) {
+		int[] pixels = pixels(image);
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES +
+				4*pixels.length);
+		buffer.putInt(MAGIC).putInt(image.getWidth()).putInt(
+				image.getHeight()).putInt(0);
+		buffer.asIntBuffer().put(pixels);
+		buffer.putInt(12, checksum(buffer));
+		buffer.rewind();
+
+		if (!directory.isDirectory() && !createDirectory()) {
+			return;
+		}
+		File file = new File(directory, key);
+		File temp = new File(directory, key + "." +
+				Thread.currentThread().getId() + ".tmp");
+		try {
+			FileOutputStream out = new FileOutputStream(temp);
+			try {
+				FileChannel channel = out.getChannel();
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+			} finally {
+				out.close();
+			}
+			if (!temp.renameTo(file)) {
+				temp.delete();
+			}
+		} catch (IOException e) {
+			temp.delete();
+		}
+	}
+
+	/**
+	 * Deletes every entry whose key is not in the given set, along with any
+	 * temporary file left behind by a writer that did not finish. Files that
+	 * are not entries of the cache are left alone.
+	 *
+	 * @param keys the keys of the entries to keep
+	 */
+	public void retainOnly(Set<String> keys) {
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+		for (File file : files) {
+			String name = file.getName();
+			if (name.length() < KEY_LENGTH ||
+					!isKey(name.substring(0, KEY_LENGTH))) {
+				continue;
+			}
+			if (name.length() == KEY_LENGTH ? !keys.contains(name)
+					: name.endsWith(".tmp")) {
+				file.delete();
+			}
+		}
+	}
+
+	/**
+	 * Returns a copy of an image as premultiplied ARGB, or the image itself if
+	 * it is in that format already.
+	 *
+	 * @param image an image
+	 * @return a {@code TYPE_INT_ARGB_PRE} image.
+	 */
+	public static BufferedImage toPremultiplied(BufferedImage image) {
+		if (image.getType() == BufferedImage.TYPE_INT_ARGB_PRE) {
+			return image;
+		}
+		BufferedImage converted = new BufferedImage(image.getWidth(),
+				image.getHeight(), BufferedImage.TYPE_INT_ARGB_PRE);
+		Graphics2D g = converted.createGraphics();
+		g.setComposite(AlphaComposite.Src);
+		g.drawImage(image, 0, 0, null);
+		g.dispose();
+		return converted;
+	}
+
+	// Creates the directory of the cache, readable and writable by its owner
+	// only, so that other users cannot plant or read entries
+	private boolean createDirectory() {
+		if (!directory.mkdirs()) {
+			return false;
+		}
+		directory.setReadable(false, false);
+		directory.setWritable(false, false);
+		directory.setExecutable(false, false);
+		return directory.setReadable(true, true) &&
+			directory.setWritable(true, true) &&
+			directory.setExecutable(true, true);
+	}
+
+	// Returns the CRC-32 of the bytes of a buffer from its position on, and
+	// leaves the position at the end
+	private static int checksum(ByteBuffer buffer) {
+		CRC32 crc = new CRC32();
+		if (buffer.hasArray()) {
+			crc.update(buffer.array(), buffer.arrayOffset() + buffer.position(),
+					buffer.remaining());
+			buffer.position(buffer.limit());
+		} else {
+			byte[] chunk = new byte[Math.min(CHUNK_SIZE, buffer.remaining())];
+			while (buffer.hasRemaining()) {
+				int n = Math.min(chunk.length, buffer.remaining());
+				buffer.get(chunk, 0, n);
+				crc.update(chunk, 0, n);
+			}
+		}
+		return (int) crc.getValue();
+	}
+
+	// Returns true if a name is made of lowercase hexadecimal digits only
+	private static boolean isKey(String name) {
+		for (int i = 0; i < name.length(); ++i) {
+			char c = name.charAt(i);
+			if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// Returns the pixel array of a TYPE_INT_ARGB_PRE image
+	private static int[] pixels(BufferedImage image) {
+		return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+	}
+}
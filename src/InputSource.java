@@ -0,0 +1,18 @@
+/**
+ * A source of input for the game other than the real keyboard, such as a bot
+ * or a script. At the start of each tick, the game asks each of its input
+ * sources which keys they are pressing and sets the state of its
+ * {@link Keyboard} accordingly.
+ *
+ * @see Game#addInputSource(InputSource)
+ */
+public interface InputSource {
+	/**
+	 * Returns the keys this input source is pressing during the current tick.
+	 *
+	 * @param game the game being played
+	 * @return the bitwise OR of the {@code Keyboard.BUTTON_} constants of the
+	 * pressed keys.
+	 */
+	int getButtons(Game game);
+}
@@ -0,0 +1,244 @@
+import java.awt.event.KeyListener;
+import java.awt.event.KeyEvent;
+
+/**
+ * This class represents the state of the keyboard.
+ */
+public class Keyboard implements KeyListener {
+	/*
+	 * Bits identifying each of the keys used by the game. A set of pressed
+	 * keys can be stored as the bitwise OR of these constants; see
+	 * getButtons() and setButtons().
+	 */
+	public static final int BUTTON_A      = 1 << 0;
+	public static final int BUTTON_S      = 1 << 1;
+	public static final int BUTTON_D      = 1 << 2;
+	public static final int BUTTON_W      = 1 << 3;
+	public static final int BUTTON_UP     = 1 << 4;
+	public static final int BUTTON_DOWN   = 1 << 5;
+	public static final int BUTTON_LEFT   = 1 << 6;
+	public static final int BUTTON_RIGHT  = 1 << 7;
+	public static final int BUTTON_LSHIFT = 1 << 8;
+	public static final int BUTTON_ENTER  = 1 << 9;
+
+	/**
+	 * Number of keys used by the game.
+	 */
+	public static final int BUTTON_COUNT = 10;
+
+	// Keyboard input states 
+    private boolean aPressed = false;
+    private boolean sPressed = false;
+    private boolean dPressed = false;
+    private boolean wPressed = false;
+    private boolean upPressed = false;
+    private boolean downPressed = false;
+    private boolean leftPressed = false;
+    private boolean rightPressed = false;
+    private boolean lshiftPressed = false;
+    private boolean enterPressed = false;
+
+	/**
+	 * This method is called automatically when any key is pressed. It updates
+	 * the internal representation of the keyboard.
+	 * <p>
+	 * Do NOT call this method from your code! It is called automatically by the
+	 * game.
+	 * </p>
+	 */
+	public void keyPressed(KeyEvent e) {
+        switch (e.getKeyCode()) {
+        case KeyEvent.VK_A:
+            aPressed = true;
+            break;
+        case KeyEvent.VK_S:
+            sPressed = true;
+            break;
+        case KeyEvent.VK_W:
+            wPressed = true;
+            break;
+        case KeyEvent.VK_D:
+            dPressed = true;
+            break;
+        case KeyEvent.VK_DOWN:
+            downPressed = true;
+            break;
+        case KeyEvent.VK_UP:
+            upPressed = true;
+            break;
+        case KeyEvent.VK_LEFT:
+            leftPressed = true;
+            break;
+        case KeyEvent.VK_RIGHT:
+            rightPressed = true;
+            break;
+        case KeyEvent.VK_SHIFT:
+            if (e.getKeyLocation() == KeyEvent.KEY_LOCATION_LEFT)
+                lshiftPressed = true;
+            break;
+        case KeyEvent.VK_ENTER:
+            enterPressed = true;
+            break;
+        }
+    } // End of keyPressed()
+
+	/**
+	 * This method is called automatically when any key is released. It updates
+	 * the internal representation of the keyboard.
+	 * <p>
+	 * Do NOT call this method from your code! It is called automatically by the
+	 * game.
+	 * </p>
+	 */
+    public void keyReleased(KeyEvent e) {
+        switch (e.getKeyCode()) {
+        case KeyEvent.VK_A:
+            aPressed = false;
+            break;
+        case KeyEvent.VK_S:
+            sPressed = false;
+            break;
+        case KeyEvent.VK_W:
+            wPressed = false;
+            break;
+        case KeyEvent.VK_D:
+            dPressed = false;
+            break;
+        case KeyEvent.VK_DOWN:
+            downPressed = false;
+            break;
+        case KeyEvent.VK_UP:
+            upPressed = false;
+            break;
+        case KeyEvent.VK_LEFT:
+            leftPressed = false;
+            break;
+        case KeyEvent.VK_RIGHT:
+            rightPressed = false;
+            break;
+        case KeyEvent.VK_SHIFT:
+            if (e.getKeyLocation() == KeyEvent.KEY_LOCATION_LEFT)
+                lshiftPressed = false;
+            break;
+        case KeyEvent.VK_ENTER:
+            enterPressed = false;
+            break;
+        }
+    } // End of keyReleased()
+
+    public void keyTyped(KeyEvent e) {
+        // This method is not used
+    } // End of keyTyped()
+    
+	/**
+	 * Returns the set of keys that are currently pressed.
+	 * 
+	 * @return the bitwise OR of the {@code BUTTON_} constants of all pressed
+	 * keys.
+	 */
+	public int getButtons() {
+		int buttons = 0;
+		if (aPressed)      buttons |= BUTTON_A;
+		if (sPressed)      buttons |= BUTTON_S;
+		if (dPressed)      buttons |= BUTTON_D;
+		if (wPressed)      buttons |= BUTTON_W;
+		if (upPressed)     buttons |= BUTTON_UP;
+		if (downPressed)   buttons |= BUTTON_DOWN;
+		if (leftPressed)   buttons |= BUTTON_LEFT;
+		if (rightPressed)  buttons |= BUTTON_RIGHT;
+		if (lshiftPressed) buttons |= BUTTON_LSHIFT;
+		if (enterPressed)  buttons |= BUTTON_ENTER;
+		return buttons;
+	}
+
+	/**
+	 * Sets which keys are pressed, overriding the real keyboard. This is used
+	 * to feed the game with input that doesn't come from the keyboard, such as
+	 * from a bot.
+	 * 
+	 * @param buttons the bitwise OR of the {@code BUTTON_} constants of the
+	 * keys that should be pressed.
+	 */
+	public void setButtons(int buttons) {
+		aPressed      = (buttons & BUTTON_A) != 0;
+		sPressed      = (buttons & BUTTON_S) != 0;
+		dPressed      = (buttons & BUTTON_D) != 0;
+		wPressed      = (buttons & BUTTON_W) != 0;
+		upPressed     = (buttons & BUTTON_UP) != 0;
+		downPressed   = (buttons & BUTTON_DOWN) != 0;
+		leftPressed   = (buttons & BUTTON_LEFT) != 0;
+		rightPressed  = (buttons & BUTTON_RIGHT) != 0;
+		lshiftPressed = (buttons & BUTTON_LSHIFT) != 0;
+		enterPressed  = (buttons & BUTTON_ENTER) != 0;
+	}
+
+	/**
+	 * @return {@code true} if the A key is pressed.
+	 */
+	public boolean isAPressed() {
+		return aPressed;
+	}
+	
+	/**
+	 * @return {@code true} if the S key is pressed.
+	 */
+	public boolean isSPressed() {
+		return sPressed;
+	}
+
+	/**
+	 * @return {@code true} if the D key is pressed.
+	 */
+	public boolean isDPressed() {
+		return dPressed;
+	}
+
+	/**
+	 * @return {@code true} if the W key is pressed.
+	 */
+	public boolean isWPressed() {
+		return wPressed;
+	}
+
+	/**
+	 * @return {@code true} if the Up key is pressed.
+	 */
+	public boolean isUpPressed() {
+		return upPressed;
+	}
+
+	/**
+	 * @return {@code true} if the Down key is pressed.
+	 */
+	public boolean isDownPressed() {
+		return downPressed;
+	}
+
+	/**
+	 * @return {@code true} if the Left key is pressed.
+	 */
+	public boolean isLeftPressed() {
+		return leftPressed;
+	}
+
+	/**
+	 * @return {@code true} if the Right key is pressed.
+	 */
+	public boolean isRightPressed() {
+		return rightPressed;
+	}
+
+	/**
+	 * @return {@code true} if the left Shift key is pressed.
+	 */
+	public boolean isLshiftPressed() {
+		return lshiftPressed;
+	}
+
+	/**
+	 * @return {@code true} if the Enter key is pressed.
+	 */
+	public boolean isEnterPressed() {
+		return enterPressed;
+	}
+}
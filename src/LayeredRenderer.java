@@ -0,0 +1,296 @@
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+
+/**
+ * Draws {@link RenderSnapshot}s of the game in two layers. The static layer
+ * holds the background and every static game object (see {@link
+ * GameObject#setStatic(boolean)}); it is drawn once and cached. Each frame is
+ * then built up in a second image that is kept from one frame to the next:
+ * only the rectangles where moving objects or changed text panels were or
+ * will be drawn are restored from the static layer, and only the moving
+ * objects and those text panels are drawn again.
+ * <p>
+ * Both layers are {@link VolatileImage}s when drawing to a window, so that
+ * they can live in video memory, and are re-created whenever their contents
+ * are lost. Without a window they are plain {@link BufferedImage}s.
+ * </p>
+ * <p>
+ * Do not use this class directly in your code.
+ * </p>
+ */
+public class LayeredRenderer {
+	private final Component component;
+	private final Sprite background;
+
+	/**
+	 * The text panels as they are drawn, updated from each snapshot.
+	 */
+	private final TextPanel[] panels;
+
+	/**
+	 * The background and the static objects.
+	 */
+	private Image staticLayer;
+
+	/**
+	 * The frame being built up, kept between frames.
+	 */
+	private Image frame;
+
+	/**
+	 * The static version of the snapshot the static layer was drawn for.
+	 */
+	private int staticVersion = -1;
+
+	/**
+	 * True if the frame holds the previous frame.
+	 */
+	private boolean frameValid = false;
+
+	/*
+	 * Where moving objects were drawn in the previous frame, where they will
+	 * be drawn in this frame, and what has to be restored from the static
+	 * layer before drawing this frame.
+	 */
+	private DirtyRectangles drawn = new DirtyRectangles();
+	private DirtyRectangles current = new DirtyRectangles();
+	private final DirtyRectangles restore = new DirtyRectangles();
+
+	/*
+	 * Where each text panel was drawn, whether it is in the frame, and whether
+	 * it is redrawn in this frame.
+	 */
+	private Rectangle[] panelBounds = new Rectangle[0];
+	private boolean[] panelShown = new boolean[0];
+	private boolean[] panelDirty = new boolean[0];
+
+	private final Rectangle bounds = new Rectangle();
+
+	/**
+	 * Creates a renderer.
+	 *
+	 * @param component the component the game is drawn on, used to create
+	 * images in video memory, or {@code null}
+	 * @param background the background image, or {@code null} for a black
+	 * background
+	 * @param panels the text panels to draw on top of the game, with their
+	 * positions. Their contents are replaced by those of each snapshot drawn.
+	 */
+	public LayeredRenderer(Component component, Sprite background,
+			TextPanel[] panels) {
+		this.component = component;
+		this.background = background;
+		this.panels = panels;
+	}
+
+	/**
+	 * Draws a snapshot of the game and its text panels onto {@code g}.
+	 *
+	 * @param g the graphics context to draw the frame on
+	 * @param snapshot the snapshot to draw
+	 * @param alpha how far the current tick has progressed, from 0 to 1
+	 */
+	public void render(Graphics2D g, RenderSnapshot snapshot, double alpha) {
+		snapshot.updatePanels(panels);
+		do {
+			validateImages();
+			if (staticVersion != snapshot.getStaticVersion()) {
+				drawStaticLayer(snapshot);
+			}
+			drawFrame(snapshot, alpha);
+			g.drawImage(frame, 0, 0, null);
+		} while (contentsLost());
+	}
+
+	/**
+	 * Creates the layers if necessary, and makes sure that video memory images
+	 * still hold their contents. A layer whose contents were lost is marked to
+	 * be drawn again from scratch.
+	 */
+	private void validateImages() {
+		if (staticLayer == null) {
+			staticLayer = createImage();
+			frame = createImage();
+			staticVersion = -1;
+			frameValid = false;
+			return;
+		}
+		if (staticLayer instanceof VolatileImage) {
+			GraphicsConfiguration gc = component.getGraphicsConfiguration();
+			int result = ((VolatileImage) staticLayer).validate(gc);
+			if (result == VolatileImage.IMAGE_INCOMPATIBLE) {
+				staticLayer = createImage();
+			}
+			if (result != VolatileImage.IMAGE_OK) {
+				staticVersion = -1;
+			}
+			result = ((VolatileImage) frame).validate(gc);
+			if (result == VolatileImage.IMAGE_INCOMPATIBLE) {
+				frame = createImage();
+			}
+			if (result != VolatileImage.IMAGE_OK) {
+				frameValid = false;
+			}
+		}
+	}
+
+	/**
+	 * Returns {@code true} if either layer lost its contents while the frame
+	 * was being drawn.
+	 */
+	private boolean contentsLost() {
+		if (staticLayer instanceof VolatileImage &&
+				(((VolatileImage) staticLayer).contentsLost() ||
+				 ((VolatileImage) frame).contentsLost())) {
+			staticVersion = -1;
+			frameValid = false;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Creates an image the size of the playing field, in video memory if
+	 * possible.
+	 */
+	private Image createImage() {
+		if (component != null && component.isDisplayable()) {
+			Image image = component.createVolatileImage(Config.GAME_WIDTH,
+					Config.GAME_HEIGHT);
+			if (image != null) {
+				return image;
+			}
+		}
+		return new BufferedImage(Config.GAME_WIDTH, Config.GAME_HEIGHT,
+				BufferedImage.TYPE_INT_RGB);
+	}
+
+	/**
+	 * Draws the background and the static objects into the static layer. The
+	 * whole frame has to be restored from it afterwards.
+	 */
+	private void drawStaticLayer(RenderSnapshot snapshot) {
+		Graphics2D g = (Graphics2D) staticLayer.getGraphics();
+		g.setColor(Color.black);
+		g.fillRect(0, 0, Config.GAME_WIDTH, Config.GAME_HEIGHT);
+		if (background != null) {
+			background.draw(g, 0, 0);
+		}
+		for (int i = 0; i < snapshot.size(); ++i) {
+			if (snapshot.isStatic(i)) {
+				snapshot.draw(g, i, 1.0);
+			}
+		}
+		g.dispose();
+
+		staticVersion = snapshot.getStaticVersion();
+		frameValid = false;
+	}
+
+	/**
+	 * Brings the frame up to date.
+	 */
+	private void drawFrame(RenderSnapshot snapshot, double alpha) {
+		Graphics2D g = (Graphics2D) frame.getGraphics();
+
+		// The debugging overlays are not covered by the bounds of the
+		// objects, so they need the whole frame to be redrawn
+		boolean everything = !frameValid || Config.DRAW_VELOCITY ||
+			Config.DRAW_BOUNDS;
+
+		// Find where the moving objects will be drawn
+		current.clear();
+		for (int i = 0; i < snapshot.size(); ++i) {
+			if (!snapshot.isStatic(i)) {
+				snapshot.getDrawBounds(i, alpha, bounds);
+				current.add(bounds);
+			}
+		}
+
+		// Restore where the moving objects were drawn. A text panel has to be
+		// redrawn if it changed or if anything under it is redrawn, and then
+		// the area it covered has to be restored as well.
+		restore.clear();
+		restore.addAll(drawn);
+		if (panelBounds.length != panels.length) {
+			panelBounds = new Rectangle[panels.length];
+			for (int i = 0; i < panels.length; ++i) {
+				panelBounds[i] = new Rectangle();
+			}
+			panelShown = new boolean[panels.length];
+			panelDirty = new boolean[panels.length];
+		}
+		for (int i = 0; i < panels.length; ++i) {
+			panelDirty[i] = everything || panels[i].hasChanged() ||
+				!panelShown[i];
+		}
+		boolean more = true;
+		while (more) {
+			more = false;
+			for (int i = 0; i < panels.length; ++i) {
+				if (!panelShown[i]) {
+					continue;
+				}
+				if (!panelDirty[i] && (restore.intersects(panelBounds[i]) ||
+						current.intersects(panelBounds[i]))) {
+					panelDirty[i] = true;
+				}
+				if (panelDirty[i]) {
+					restore.add(panelBounds[i]);
+					panelShown[i] = false;
+					more = true;
+				}
+			}
+		}
+
+		if (everything) {
+			g.drawImage(staticLayer, 0, 0, null);
+		} else {
+			for (int i = 0; i < restore.size(); ++i) {
+				restore.get(i, bounds);
+				copyStatic(g, bounds);
+			}
+		}
+
+		// Draw the moving objects
+		for (int i = 0; i < snapshot.size(); ++i) {
+			if (!snapshot.isStatic(i)) {
+				snapshot.draw(g, i, alpha);
+			}
+		}
+
+		// Draw the text
+		for (int i = 0; i < panels.length; ++i) {
+			if (panelDirty[i]) {
+				panels[i].draw(g);
+				panels[i].getBounds(g, panelBounds[i]);
+				panelShown[i] = true;
+			}
+		}
+		g.dispose();
+
+		DirtyRectangles swap = drawn;
+		drawn = current;
+		current = swap;
+		frameValid = true;
+	}
+
+	/**
+	 * Copies the given area, clipped to the playing field, from the static
+	 * layer into the frame.
+	 */
+	private void copyStatic(Graphics2D g, Rectangle r) {
+		int x0 = Math.max(r.x, 0), y0 = Math.max(r.y, 0);
+		int x1 = Math.min(r.x + r.width, Config.GAME_WIDTH);
+		int y1 = Math.min(r.y + r.height, Config.GAME_HEIGHT);
+		if (x0 < x1 && y0 < y1) {
+			g.drawImage(staticLayer, x0, y0, x1, y1, x0, y0, x1, y1, null);
+		}
+	}
+}
@@ -0,0 +1,77 @@
+/**
+ * The outcome of a single match played by the {@link BatchRunner}.
+ */
+public class MatchResult {
+	/**
+	 * Winner of a match that was stopped before either player won.
+	 */
+	public static final int NO_WINNER = -1;
+
+	private final int winner;
+	private final int[] scores;
+	private final long ticks;
+	private final long durationNanos;
+
+	/**
+	 * Creates a new match result.
+	 *
+	 * @param winner the ID of the winning player, or {@code NO_WINNER}
+	 * @param player1Score the number of points scored by player 1
+	 * @param player2Score the number of points scored by player 2
+	 * @param ticks the number of ticks the match lasted
+	 * @param durationNanos the real time it took to play the match in ns
+	 */
+	public MatchResult(int winner, int player1Score, int player2Score,
+			long ticks, long durationNanos) {
+		this.winner = winner;
+		this.scores = new int[] {player1Score, player2Score};
+		this.ticks = ticks;
+		this.durationNanos = durationNanos;
+	}
+
+	/**
+	 * Returns the ID of the player who won the match.
+	 *
+	 * @return the winner, or {@code NO_WINNER} if the match was stopped
+	 * before either player won.
+	 */
+	public int getWinner() {
+		return winner;
+	}
+
+	/**
+	 * Returns the final score of the given player.
+	 *
+	 * @param playerID one of {@code Config.PLAYER1_ID} or {@code
+	 * Config.PLAYER2_ID}
+	 * @return the number of points the player scored.
+	 */
+	public int getScore(int playerID) {
+		return scores[playerID];
+	}
+
+	/**
+	 * Returns the length of the match in ticks.
+	 *
+	 * @return the number of ticks simulated.
+	 */
+	public long getTicks() {
+		return ticks;
+	}
+
+	/**
+	 * Returns the real time it took to simulate the match.
+	 *
+	 * @return the duration in nanoseconds.
+	 */
+	public long getDurationNanos() {
+		return durationNanos;
+	}
+
+	public String toString() {
+		String result = (winner == NO_WINNER) ? "no winner" :
+			"player " + (winner + 1) + " won";
+		return result + " " + scores[0] + "-" + scores[1] + " after " +
+			ticks + " ticks (" + durationNanos/1000000 + " ms)";
+	}
+}
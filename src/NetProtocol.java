@@ -0,0 +1,134 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Defines the messages exchanged between a {@link GameServer} and its {@link
+ * GameClient}s over TCP. Every message is sent as a frame: a 2-byte unsigned
+ * length, followed by that many bytes of payload. The first byte of the
+ * payload is the type of the message.
+ * <p>
+ * Messages from the server:
+ * </p>
+ * <ul>
+ * <li>{@code WELCOME}: the player ID of the client, or {@code SPECTATOR}
+ * (byte), the number of ticks per second (short), and the handle of the
+ * player's ship, or {@code EntityHandles.NONE} for a spectator (int).</li>
+ * <li>{@code STATE}: the sequence number of the last input of the client that
+ * has been applied to the game (int), the tick of the state this state was
+ * encoded against, or -1 if it was encoded in full (int), and the state of
+ * the game encoded by a {@link SnapshotCodec}. A spectator's inputs are
+ * never applied, so they are acknowledged as soon as they are received.</li>
+ * </ul>
+ * <p>
+ * Messages from a client:
+ * </p>
+ * <ul>
+ * <li>{@code INPUT}: the sequence number of the input (int), and the buttons
+ * the player is pressing (short). Sequence numbers start at 1 and increase by
+ * one with every input. The server applies one input of each player per
+ * tick, in order.</li>
+ * <li>{@code ACK}: the tick of the latest state received (int). The server
+ * encodes the states it sends as the difference from this state, as long as
+ * it is recent enough.</li>
+ * </ul>
+ */
+public class NetProtocol {
+	/**
+	 * Size of the length at the start of each frame.
+	 */
+	public static final int HEADER_BYTES = 2;
+
+	/**
+	 * Largest payload of a frame.
+	 */
+	public static final int MAX_PAYLOAD = 0xffff;
+
+	/**
+	 * Type of the message that tells a client who it is.
+	 */
+	public static final byte WELCOME = 1;
+
+	/**
+	 * Type of the message that carries the state of the game.
+	 */
+	public static final byte STATE = 2;
+
+	/**
+	 * Type of the message that carries a player's input.
+	 */
+	public static final byte INPUT = 3;
+
+	/**
+	 * Type of the message that acknowledges a state.
+	 */
+	public static final byte ACK = 4;
+
+	/**
+	 * Player ID sent to a client that only watches the game.
+	 */
+	public static final int SPECTATOR = -1;
+
+	/**
+	 * The {@code Keyboard.BUTTON_} constants each player may press, indexed by
+	 * player ID.
+	 */
+	public static final int[] PLAYER_BUTTONS = {
+		Keyboard.BUTTON_A | Keyboard.BUTTON_S | Keyboard.BUTTON_D |
+			Keyboard.BUTTON_W | Keyboard.BUTTON_LSHIFT,
+		Keyboard.BUTTON_UP | Keyboard.BUTTON_DOWN | Keyboard.BUTTON_LEFT |
+			Keyboard.BUTTON_RIGHT | Keyboard.BUTTON_ENTER
+	};
+
+	/**
+	 * Starts a frame of the given type at the position of {@code buffer}.
+	 *
+	 * @param buffer the buffer to write the frame to
+	 * @param type the type of the message
+	 * @return the position of the frame, to pass to {@link #endFrame}.
+	 */
+	public static int beginFrame(ByteBuffer buffer, byte type) {
+		int start = buffer.position();
+		buffer.putShort((short) 0);
+		buffer.put(type);
+		return start;
+	}
+
+	/**
+	 * Finishes the frame started at {@code start} by filling in its length.
+	 *
+	 * @param buffer the buffer holding the frame, positioned after its end
+	 * @param start the value returned by {@link #beginFrame}
+	 */
+	public static void endFrame(ByteBuffer buffer, int start) {
+		int length = buffer.position() - start - HEADER_BYTES;
+		if (length > MAX_PAYLOAD) {
+			throw new IllegalArgumentException("Frame too long: " + length);
+		}
+		buffer.putShort(start, (short) length);
+	}
+
+	/**
+	 * Returns the payload of the next complete frame in {@code buffer}, and
+	 * moves the position of {@code buffer} past it.
+	 *
+	 * @param buffer a buffer of received bytes, ready to be read
+	 * @return a buffer holding just the payload, or {@code null} if {@code
+	 * buffer} does not hold a complete frame.
+	 */
+	public static ByteBuffer nextFrame(ByteBuffer buffer) {
+		if (buffer.remaining() < HEADER_BYTES) {
+			return null;
+		}
+		int length = buffer.getShort(buffer.position()) & 0xffff;
+		if (buffer.remaining() < HEADER_BYTES + length) {
+			return null;
+		}
+		buffer.position(buffer.position() + HEADER_BYTES);
+		ByteBuffer payload = buffer.slice();
+		payload.limit(length);
+		buffer.position(buffer.position() + length);
+		return payload;
+	}
+
+	// This class only holds constants
+	private NetProtocol() { }
+}
@@ -0,0 +1,303 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The state of a game as it is sent from a {@link GameServer} to its
+ * clients: the tick, the scores, and the handle, collision type, position,
+ * rotation, speed, flags and state of every game object.
+ * <p>
+ * A state is captured from a game on the server with {@link #capture(Game)},
+ * and sent with a {@link SnapshotCodec}. Positions, rotations and speeds are
+ * quantized when they are captured, so that the client decodes exactly the
+ * same numbers the server encoded. The objects are kept in the order of
+ * their handles, so that two states can be compared object by object. The
+ * arrays are reused from one state to the next.
+ * </p>
+ */
+public class NetworkState {
+	/**
+	 * Flag set if the object is visible.
+	 */
+	public static final int VISIBLE = 1;
+
+	/**
+	 * Flag set if the object can collide with other objects.
+	 */
+	public static final int COLLIDABLE = 2;
+
+	/**
+	 * Units of a quantized position per pixel.
+	 */
+	public static final double POSITION_SCALE = 16;
+
+	/**
+	 * Units of a quantized speed per pixel per second.
+	 */
+	public static final double SPEED_SCALE = 16;
+
+	/**
+	 * Number of steps a full turn is quantized to.
+	 */
+	public static final int ROTATION_STEPS = 1 << 16;
+
+	/**
+	 * Largest number of objects that fit into a frame, however they are
+	 * encoded. A state holds at most this many objects.
+	 */
+	public static final int MAX_OBJECTS = (NetProtocol.MAX_PAYLOAD - 64)/
+			SnapshotCodec.MAX_OBJECT_BYTES;
+
+	long tick;
+	boolean ended;
+	final int[] scores = new int[2];
+
+	/*
+	 * The objects, in the order of their handles. These are read and written
+	 * directly by SnapshotCodec.
+	 */
+	int size = 0;
+	int[] handle = new int[16];
+	int[] type = new int[16];
+	int[] x = new int[16];
+	int[] y = new int[16];
+	int[] rotation = new int[16];
+	int[] speed = new int[16];
+	int[] flags = new int[16];
+	int[] state = new int[16];
+
+	/**
+	 * The number of objects of the game left out when it was captured.
+	 */
+	private int omitted = 0;
+
+	/**
+	 * Copies the state of a game into this state. If the game has more than
+	 * {@code MAX_OBJECTS} objects, only the ones with the lowest handles are
+	 * kept, and {@link #getOmittedCount()} tells how many were left out.
+	 * Since handles are stable, the same objects are left out from one tick to
+	 * the next, however the game's list of objects is reordered.
+	 *
+	 * @param game the game
+	 */
+	public void capture(Game game) {
+		tick = game.getTicks();
+		ended = game.hasEnded();
+		scores[Config.PLAYER1_ID] = game.getScore(Config.PLAYER1_ID);
+		scores[Config.PLAYER2_ID] = game.getScore(Config.PLAYER2_ID);
+
+		List<GameObject> objects = game.getGameObjects();
+		size = objects.size();
+		allocate(size);
+		for (int i = 0; i < size; ++i) {
+			GameObject o = objects.get(i);
+			handle[i] = o.getHandle();
+			type[i] = o.getCollisionType();
+			x[i] = quantize(o.getX(), POSITION_SCALE);
+			y[i] = quantize(o.getY(), POSITION_SCALE);
+			rotation[i] = quantizeRotation(o.getRotation());
+			speed[i] = quantize(o.getSpeed(), SPEED_SCALE);
+			flags[i] = (o.isVisible() ? VISIBLE : 0) |
+				(o.isCollidable() ? COLLIDABLE : 0);
+			if (o instanceof Ship) {
+				state[i] = ((Ship) o).getState();
+			} else if (o instanceof Flag) {
+				state[i] = ((Flag) o).getState();
+			} else {
+				state[i] = 0;
+			}
+		}
+
+		sortByHandle();
+		omitted = Math.max(0, size - MAX_OBJECTS);
+		size -= omitted;
+	}
+
+	/**
+	 * Returns the number of objects of the game that did not fit into this
+	 * state when it was captured. This is always 0 for a state decoded by a
+	 * client.
+	 *
+	 * @return the number of objects left out.
+	 */
+	public int getOmittedCount() {
+		return omitted;
+	}
+
+	/**
+	 * Returns the number of ticks the game had been stepped.
+	 *
+	 * @return the tick of this state.
+	 */
+	public long getTick() {
+		return tick;
+	}
+
+	/**
+	 * Returns {@code true} if the game had ended.
+	 *
+	 * @return {@code true} if the game had ended.
+	 */
+	public boolean hasEnded() {
+		return ended;
+	}
+
+	/**
+	 * Returns the score of a player.
+	 *
+	 * @param playerID the ID of the player
+	 * @return the player's score.
+	 */
+	public int getScore(int playerID) {
+		return scores[playerID];
+	}
+
+	/**
+	 * Returns the number of objects.
+	 *
+	 * @return the number of objects.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the handle of an object (see {@link GameObject#getHandle()}).
+	 *
+	 * @param i the index of the object
+	 * @return the handle of the object.
+	 */
+	public int getHandle(int i) {
+		return handle[i];
+	}
+
+	/**
+	 * Returns the collision type of an object, which tells what kind of
+	 * object it is (see {@link CollisionType}).
+	 *
+	 * @param i the index of the object
+	 * @return the collision type of the object.
+	 */
+	public int getType(int i) {
+		return type[i];
+	}
+
+	/**
+	 * Returns the x coordinate of an object.
+	 *
+	 * @param i the index of the object
+	 * @return the x coordinate in pixels.
+	 */
+	public double getX(int i) {
+		return x[i]/POSITION_SCALE;
+	}
+
+	/**
+	 * Returns the y coordinate of an object.
+	 *
+	 * @param i the index of the object
+	 * @return the y coordinate in pixels.
+	 */
+	public double getY(int i) {
+		return y[i]/POSITION_SCALE;
+	}
+
+	/**
+	 * Returns the rotation of an object.
+	 *
+	 * @param i the index of the object
+	 * @return the rotation in radians, from 0 up to a full turn.
+	 */
+	public double getRotation(int i) {
+		return rotation[i]*(2*Math.PI/ROTATION_STEPS);
+	}
+
+	/**
+	 * Returns the speed of an object.
+	 *
+	 * @param i the index of the object
+	 * @return the speed in pixels per second.
+	 */
+	public double getSpeed(int i) {
+		return speed[i]/SPEED_SCALE;
+	}
+
+	/**
+	 * Returns the flags of an object.
+	 *
+	 * @param i the index of the object
+	 * @return the bitwise OR of {@code VISIBLE} and {@code COLLIDABLE}, as
+	 * they apply to the object.
+	 */
+	public int getFlags(int i) {
+		return flags[i];
+	}
+
+	/**
+	 * Returns the state of an object.
+	 *
+	 * @param i the index of the object
+	 * @return the state of a {@link Ship} or {@link Flag}, as returned by its
+	 * {@code getState()} method, or 0 for any other object.
+	 */
+	public int getState(int i) {
+		return state[i];
+	}
+
+	/**
+	 * Puts the objects in the order of their handles. This is cheap for a
+	 * nearly sorted list: objects are only moved in the game's list when
+	 * another object is removed, and the decoder only adds objects at the end.
+	 */
+	void sortByHandle() {
+		for (int i = 1; i < size; ++i) {
+			for (int j = i; j > 0 && handle[j - 1] > handle[j]; --j) {
+				swap(j - 1, j);
+			}
+		}
+	}
+
+	/**
+	 * Makes every array hold at least {@code capacity} objects.
+	 */
+	void allocate(int capacity) {
+		if (handle.length >= capacity) {
+			return;
+		}
+		capacity = Math.max(capacity, 2*handle.length);
+		handle = Arrays.copyOf(handle, capacity);
+		type = Arrays.copyOf(type, capacity);
+		x = Arrays.copyOf(x, capacity);
+		y = Arrays.copyOf(y, capacity);
+		rotation = Arrays.copyOf(rotation, capacity);
+		speed = Arrays.copyOf(speed, capacity);
+		flags = Arrays.copyOf(flags, capacity);
+		state = Arrays.copyOf(state, capacity);
+	}
+
+	private void swap(int i, int j) {
+		swap(handle, i, j);
+		swap(type, i, j);
+		swap(x, i, j);
+		swap(y, i, j);
+		swap(rotation, i, j);
+		swap(speed, i, j);
+		swap(flags, i, j);
+		swap(state, i, j);
+	}
+
+	private static void swap(int[] a, int i, int j) {
+		int t = a[i];
+		a[i] = a[j];
+		a[j] = t;
+	}
+
+	private static int quantize(double value, double scale) {
+		return (int) Math.round(value*scale);
+	}
+
+	// Quantizes a rotation to a number of steps from 0 up to a full turn
+	private static int quantizeRotation(double rotation) {
+		long steps = Math.round(rotation*(ROTATION_STEPS/(2*Math.PI)));
+		return (int) steps & (ROTATION_STEPS - 1);
+	}
+}
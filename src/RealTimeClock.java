@@ -0,0 +1,17 @@
+/**
+ * A {@link GameClock} that follows the system's real (wall-clock) time. This
+ * is the clock used when the game is played on screen.
+ */
+public class RealTimeClock implements GameClock {
+	/**
+	 * The real-time clock. It has no state, so it can be shared by every game.
+	 */
+	public static final RealTimeClock INSTANCE = new RealTimeClock();
+
+	// Use INSTANCE instead of creating new clocks
+	private RealTimeClock() { }
+
+	public long nanoTime() {
+		return System.nanoTime();
+	}
+}
@@ -0,0 +1,231 @@
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A copy of everything needed to draw one frame of the game: the sprite,
+ * position and rotation of each visible game object and the contents of the
+ * text panels. The game is drawn from a snapshot rather than from the game
+ * objects, so that the snapshot can be drawn on another thread while the
+ * simulation carries on (see {@link Config#RENDER_THREAD}).
+ * <p>
+ * A snapshot is taken on the simulation thread with {@link #capture} and
+ * only read afterwards, until it is captured again. Snapshots are reused
+ * from frame to frame, so capturing one does not allocate any memory once
+ * its arrays are large enough.
+ * </p>
+ * <p>
+ * Do not use this class directly in your code.
+ * </p>
+ */
+public class RenderSnapshot {
+	/**
+	 * Initial number of objects the arrays can hold.
+	 */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/*
+	 * The state of each visible object, in the order the objects are in the
+	 * game. These arrays may be longer than the number of objects.
+	 */
+	private Sprite[] sprite = new Sprite[INITIAL_CAPACITY];
+	private double[] x = new double[INITIAL_CAPACITY];
+	private double[] y = new double[INITIAL_CAPACITY];
+	private double[] rotation = new double[INITIAL_CAPACITY];
+	private double[] previousX = new double[INITIAL_CAPACITY];
+	private double[] previousY = new double[INITIAL_CAPACITY];
+	private double[] previousRotation = new double[INITIAL_CAPACITY];
+	private double[] speed = new double[INITIAL_CAPACITY];
+	private double[] radius = new double[INITIAL_CAPACITY];
+	private boolean[] isStatic = new boolean[INITIAL_CAPACITY];
+
+	/**
+	 * Number of objects in the snapshot.
+	 */
+	private int size = 0;
+
+	/**
+	 * The static version of the game (see {@link Game#getStaticVersion()}).
+	 */
+	private int staticVersion = 0;
+
+	/*
+	 * The contents of each text panel.
+	 */
+	private String[] panelText = new String[0];
+	private Font[] panelFont = new Font[0];
+	private Color[] panelColor = new Color[0];
+
+	/**
+	 * How far the tick had progressed when the snapshot was taken.
+	 */
+	private double alpha = 1.0;
+
+	/**
+	 * The time of the game's clock when the snapshot was taken.
+	 */
+	private long time = 0;
+
+	/**
+	 * Copies the state of the game into this snapshot.
+	 *
+	 * @param game the game
+	 * @param panels the text panels of the game
+	 * @param alpha how far the current tick has progressed, from 0 to 1
+	 */
+	void capture(Game game, TextPanel[] panels, double alpha) {
+		List<GameObject> objects = game.getGameObjects();
+		Arrays.fill(sprite, 0, size, null);
+		size = 0;
+		for (int i = 0; i < objects.size(); ++i) {
+			GameObject o = objects.get(i);
+			if (!o.isVisible() || o.getSprite() == null) {
+				continue;
+			}
+			if (size == sprite.length) {
+				allocate(2*size);
+			}
+			sprite[size] = o.getSprite();
+			x[size] = o.getX();
+			y[size] = o.getY();
+			rotation[size] = o.getRotation();
+			previousX[size] = o.getPreviousX();
+			previousY[size] = o.getPreviousY();
+			previousRotation[size] = o.getPreviousRotation();
+			speed[size] = o.getSpeed();
+			radius[size] = o.getRadius();
+			isStatic[size] = o.isStatic();
+			o.warnIfOffScreen(x[size], y[size]);
+			++size;
+		}
+		staticVersion = game.getStaticVersion();
+
+		if (panelText.length != panels.length) {
+			panelText = new String[panels.length];
+			panelFont = new Font[panels.length];
+			panelColor = new Color[panels.length];
+		}
+		for (int i = 0; i < panels.length; ++i) {
+			panelText[i] = panels[i].getText();
+			panelFont[i] = panels[i].getFont();
+			panelColor[i] = panels[i].getColor();
+		}
+
+		this.alpha = alpha;
+		this.time = game.getClock().nanoTime();
+	}
+
+	/**
+	 * Returns the number of objects in the snapshot.
+	 *
+	 * @return the number of objects.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the static version of the game when the snapshot was taken.
+	 *
+	 * @return the static version.
+	 */
+	public int getStaticVersion() {
+		return staticVersion;
+	}
+
+	/**
+	 * Returns {@code true} if the object at index {@code i} is static.
+	 *
+	 * @param i the index of the object
+	 * @return {@code true} if the object is static.
+	 */
+	public boolean isStatic(int i) {
+		return isStatic[i];
+	}
+
+	/**
+	 * Returns how far the tick has progressed at the given time. With a fixed
+	 * timestep, this keeps increasing after the snapshot was taken, so that a
+	 * snapshot drawn later is drawn further along, up to its current state.
+	 *
+	 * @param now the current time of the game's clock
+	 * @return the fraction of the tick to draw the snapshot at, from 0 to 1.
+	 */
+	public double getAlpha(long now) {
+		if (!Config.FIXED_TIMESTEP) {
+			return alpha;
+		}
+		double elapsed = (now - time)*(double) Config.SIMULATION_RATE/1e9;
+		return Math.min(1.0, alpha + Math.max(0.0, elapsed));
+	}
+
+	/**
+	 * Copies the contents of the text panels in the snapshot into the given
+	 * panels.
+	 *
+	 * @param panels the panels to update
+	 */
+	void updatePanels(TextPanel[] panels) {
+		for (int i = 0; i < panelText.length && i < panels.length; ++i) {
+			panels[i].setText(panelText[i]);
+			panels[i].setFont(panelFont[i]);
+			panels[i].setColor(panelColor[i]);
+		}
+	}
+
+	/**
+	 * Computes the area of the screen the object at index {@code i} covers
+	 * when it is drawn with {@link #draw}.
+	 *
+	 * @param i the index of the object
+	 * @param alpha how far the tick has progressed, from 0 to 1
+	 * @param bounds receives the area
+	 */
+	void getDrawBounds(int i, double alpha, Rectangle bounds) {
+		GameObject.getDrawBounds(sprite[i], getX(i, alpha), getY(i, alpha),
+				bounds);
+	}
+
+	/**
+	 * Draws the object at index {@code i} in between its position at the
+	 * start of the tick and its position when the snapshot was taken.
+	 *
+	 * @param g the graphics context to draw on
+	 * @param i the index of the object
+	 * @param alpha how far the tick has progressed, from 0 to 1
+	 */
+	void draw(Graphics2D g, int i, double alpha) {
+		// The rotation takes the shorter way around the circle
+		double angle = previousRotation[i] + alpha*Math.IEEEremainder(
+				rotation[i] - previousRotation[i], 2*Math.PI);
+		GameObject.draw(g, sprite[i], getX(i, alpha), getY(i, alpha), angle,
+				speed[i], radius[i]);
+	}
+
+	private double getX(int i, double alpha) {
+		return previousX[i] + alpha*(x[i] - previousX[i]);
+	}
+
+	private double getY(int i, double alpha) {
+		return previousY[i] + alpha*(y[i] - previousY[i]);
+	}
+
+	/**
+	 * Makes every array hold {@code capacity} objects, keeping their contents.
+	 */
+	private void allocate(int capacity) {
+		sprite = Arrays.copyOf(sprite, capacity);
+		x = Arrays.copyOf(x, capacity);
+		y = Arrays.copyOf(y, capacity);
+		rotation = Arrays.copyOf(rotation, capacity);
+		previousX = Arrays.copyOf(previousX, capacity);
+		previousY = Arrays.copyOf(previousY, capacity);
+		previousRotation = Arrays.copyOf(previousRotation, capacity);
+		speed = Arrays.copyOf(speed, capacity);
+		radius = Arrays.copyOf(radius, capacity);
+		isStatic = Arrays.copyOf(isStatic, capacity);
+	}
+}
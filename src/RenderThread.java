@@ -0,0 +1,80 @@
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Draws the game on its own thread, so that drawing and flipping the buffer
+ * overlap with the simulation instead of delaying it. The simulation thread
+ * publishes a {@link RenderSnapshot} after each tick, and this thread draws
+ * the latest one {@code Config.FRAME_RATE} times per second. Once a snapshot
+ * has been drawn at its final position, this thread sleeps until the next
+ * snapshot is published, so it does not draw anything while the game is
+ * idle.
+ * <p>
+ * Do not use this class directly in your code.
+ * </p>
+ *
+ * @see Config#RENDER_THREAD
+ */
+public class RenderThread extends Thread {
+	private final Graphics graphics;
+	private final GameClock clock;
+
+	/**
+	 * The snapshots published by the simulation thread.
+	 */
+	private final TripleBuffer<RenderSnapshot> snapshots =
+		new TripleBuffer<RenderSnapshot>(new RenderSnapshot(),
+				new RenderSnapshot(), new RenderSnapshot());
+
+	/**
+	 * Creates a render thread that draws on the given {@link Graphics}.
+	 *
+	 * @param graphics the graphics to draw on
+	 * @param clock the clock of the game
+	 */
+	RenderThread(Graphics graphics, GameClock clock) {
+		super("Render");
+		this.graphics = graphics;
+		this.clock = clock;
+		setDaemon(true);
+	}
+
+	/**
+	 * Returns the snapshot to fill before calling {@link #publish()}. Only
+	 * call this on the simulation thread.
+	 *
+	 * @return the snapshot to fill.
+	 */
+	RenderSnapshot getSnapshot() {
+		return snapshots.getBack();
+	}
+
+	/**
+	 * Hands the snapshot returned by {@link #getSnapshot()} to this thread to
+	 * draw. Only call this on the simulation thread.
+	 */
+	void publish() {
+		snapshots.publish();
+		LockSupport.unpark(this);
+	}
+
+	public void run() {
+		FrameScheduler scheduler = new FrameScheduler(clock, Config.FRAME_RATE);
+		boolean finished = false;
+		while (true) {
+			if (snapshots.update()) {
+				finished = false;
+			} else if (finished) {
+				// Nothing has changed since the last frame
+				LockSupport.park(this);
+				scheduler.start();
+				continue;
+			}
+
+			RenderSnapshot snapshot = snapshots.getFront();
+			double alpha = snapshot.getAlpha(clock.nanoTime());
+			graphics.present(snapshot, alpha);
+			finished = alpha >= 1.0;
+			scheduler.waitForNextFrame();
+		}
+	}
+}
@@ -0,0 +1,419 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Plays back a replay written by a {@link ReplayRecorder}. The player is an
+ * {@link InputSource}: added to a game created by {@link #createGame}, it
+ * presses the recorded keys at each tick in place of the keyboard, so the
+ * game is played exactly as it was recorded. Without a display, a replay is
+ * played back as fast as the game can be simulated.
+ * <p>
+ * The player can also {@link #seek} to any tick of the replay, forward or
+ * back. It then restores the last keyframe before that tick and simulates
+ * the game from there, which takes at most {@code
+ * Config.REPLAY_KEYFRAME_INTERVAL} ticks however long the match is.
+ * </p>
+ * <p>
+ * Usage: {@code java ReplayPlayer [-show] [-seek TICK] FILE}. Without {@code
+ * -show}, the replay is played back headless and its result is printed; with
+ * it, the replay is shown in real time. With {@code -seek}, the replay starts
+ * at the given tick.
+ * </p>
+ */
+public class ReplayPlayer implements InputSource {
+	/**
+	 * Size of the buffers in front of and behind the decompressor.
+	 */
+	private static final int BUFFER_SIZE = 8192;
+
+	private final RandomAccessFile file;
+	private final Inflater inflater = new Inflater();
+	private final String gameClass;
+	private final long seed;
+
+	/**
+	 * The tick of the keyframe and the offset of each block of the file.
+	 */
+	private long[] blockTicks = new long[16];
+	private long[] blockOffsets = new long[16];
+	private int blocks = 0;
+
+	/**
+	 * The block being played, and the keys recorded in it, or {@code null}
+	 * once the replay has been played to the end.
+	 */
+	private int block = -1;
+	private DataInputStream in;
+
+	/**
+	 * The game created by {@link #createGame}.
+	 */
+	private Game game;
+
+	/**
+	 * The keys of the next tick, or -1 once the replay has been played to
+	 * the end.
+	 */
+	private int next;
+	private long ticks = 0;
+
+	/**
+	 * The error that stopped the replay before its end, or {@code null}.
+	 */
+	private IOException error;
+
+	/**
+	 * Opens a replay and reads its header and index.
+	 *
+	 * @param file the replay file
+	 * @throws IOException if the file could not be read, is not a replay, or
+	 * was recorded with a different configuration
+	 */
+	public ReplayPlayer(File file) throws IOException {
+		this.file = new RandomAccessFile(file, "r");
+		try {
+			if (this.file.readInt() != ReplayRecorder.MAGIC) {
+				throw new IOException(file + " is not a replay");
+			}
+			int version = this.file.readInt();
+			if (version != ReplayRecorder.VERSION) {
+				throw new IOException("Unsupported replay version " + version);
+			}
+			gameClass = this.file.readUTF();
+			seed = this.file.readLong();
+			int simulationRate = this.file.readInt();
+			int pointsToWin = this.file.readInt();
+			if (simulationRate != Config.SIMULATION_RATE ||
+					pointsToWin != Config.POINTS_TO_WIN) {
+				throw new IOException("Replay was recorded with " +
+						simulationRate + " ticks per second and " +
+						pointsToWin + " points to win");
+			}
+			readIndex(this.file.getFilePointer());
+			readNext();
+			if (error != null) {
+				throw error;
+			}
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Creates and initializes the game the replay was recorded from, with
+	 * this player as its input.
+	 *
+	 * @param headless {@code true} to play the replay without a display
+	 * @return the game, ready to be stepped or run.
+	 * @throws IOException if the game could not be created
+	 */
+	public Game createGame(boolean headless) throws IOException {
+		try {
+			game = Class.forName(gameClass).asSubclass(Game.class)
+				.getConstructor(boolean.class, long.class)
+				.newInstance(headless, seed);
+		} catch (InvocationTargetException e) {
+			throw new IOException("Cannot create " + gameClass, e.getCause());
+		} catch (Exception e) {
+			throw new IOException("Cannot create " + gameClass, e);
+		}
+		game.addInputSource(this);
+		game.initGame();
+		return game;
+	}
+
+	/**
+	 * Moves the game created by {@link #createGame} to the given tick. Unless
+	 * the game is already at or after the last keyframe before that tick, and
+	 * not past the tick, the game is first put back into the state of that
+	 * keyframe. The game is then simulated up to the tick, or until the
+	 * replay or the game ends. This must be called in between ticks, and not
+	 * while the game loop is running.
+	 *
+	 * @param tick the tick to move to
+	 * @throws IOException if the replay could not be read, before or while
+	 * the game was simulated up to the tick
+	 * @throws IllegalStateException if no game has been created
+	 */
+	public void seek(long tick) throws IOException {
+		if (game == null) {
+			throw new IllegalStateException("No game has been created");
+		}
+		int i = findBlock(tick);
+		if (i >= 0 && (game.getTicks() < blockTicks[i] ||
+				game.getTicks() > tick)) {
+			byte[] keyframe = openBlock(i);
+			game.readKeyframe(new DataInputStream(
+					new ByteArrayInputStream(keyframe)));
+			ticks = game.getTicks();
+			error = null;
+			readNext();
+		}
+
+		double deltaTime = 1.0/Config.SIMULATION_RATE;
+		while (game.getTicks() < tick && !game.hasEnded() && !isFinished()) {
+			game.step(deltaTime);
+		}
+		if (error != null) {
+			throw error;
+		}
+	}
+
+	public int getButtons(Game game) {
+		if (next < 0) {
+			return 0;
+		}
+		int buttons = next;
+		++ticks;
+		readNext();
+		return buttons;
+	}
+
+	/**
+	 * Returns {@code true} once every recorded tick has been played, or the
+	 * replay could not be read any further (see {@link #getError()}).
+	 *
+	 * @return {@code true} if the replay has ended.
+	 */
+	public boolean isFinished() {
+		return next < 0;
+	}
+
+	/**
+	 * Returns the error that ended the replay before all of its ticks were
+	 * played, e.g. because a block of the file is damaged.
+	 *
+	 * @return the error, or {@code null} if there was none.
+	 */
+	public IOException getError() {
+		return error;
+	}
+
+	/**
+	 * Returns the number of ticks played so far.
+	 *
+	 * @return the number of ticks.
+	 */
+	public long getTicks() {
+		return ticks;
+	}
+
+	/**
+	 * Returns the number of keyframes in the replay.
+	 *
+	 * @return the number of keyframes.
+	 */
+	public int getKeyframeCount() {
+		return blocks;
+	}
+
+	/**
+	 * Returns the name of the class of the recorded game.
+	 *
+	 * @return the name of the game's class.
+	 */
+	public String getGameClass() {
+		return gameClass;
+	}
+
+	/**
+	 * Returns the seed of the recorded game.
+	 *
+	 * @return the game's seed.
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Closes the replay file.
+	 */
+	public void close() {
+		try {
+			file.close();
+		} catch (IOException e) {
+			// Closed anyway
+		} finally {
+			inflater.end();
+		}
+	}
+
+	// Reads the index at the end of the file, or finds the blocks one by one
+	// if there is none
+	private void readIndex(long start) throws IOException {
+		long length = file.length();
+		if (length >= start + ReplayRecorder.TRAILER_BYTES) {
+			file.seek(length - ReplayRecorder.TRAILER_BYTES);
+			long offset = file.readLong();
+			if (file.readInt() == ReplayRecorder.MAGIC && offset >= start &&
+					offset <= length - ReplayRecorder.TRAILER_BYTES) {
+				file.seek(offset);
+				int count = file.readInt();
+				for (int i = 0; i < count; ++i) {
+					long tick = file.readLong();
+					addBlock(tick, file.readLong());
+				}
+				return;
+			}
+		}
+
+		// A replay cut short, e.g. because the program was killed while
+		// recording, has no index and is played up to its last whole block
+		long offset = start;
+		while (offset + ReplayRecorder.BLOCK_HEADER_BYTES <= length) {
+			file.seek(offset);
+			long tick = file.readLong();
+			long end = offset + ReplayRecorder.BLOCK_HEADER_BYTES +
+				file.readInt();
+			if (end > length) {
+				break;
+			}
+			addBlock(tick, offset);
+			offset = end;
+		}
+	}
+
+	private void addBlock(long tick, long offset) {
+		if (blocks == blockTicks.length) {
+			blockTicks = Arrays.copyOf(blockTicks, 2*blocks);
+			blockOffsets = Arrays.copyOf(blockOffsets, 2*blocks);
+		}
+		blockTicks[blocks] = tick;
+		blockOffsets[blocks] = offset;
+		++blocks;
+	}
+
+	// Returns the last block whose keyframe is at or before the given tick,
+	// or -1 if there is none
+	private int findBlock(long tick) {
+		int i = Arrays.binarySearch(blockTicks, 0, blocks, tick);
+		return i >= 0 ? i : -i - 2;
+	}
+
+	// Reads a block, and returns its keyframe. The keys of the block are read
+	// from in afterwards.
+	private byte[] openBlock(int i) throws IOException {
+		block = i;
+		in = null;
+		file.seek(blockOffsets[i]);
+		file.readLong(); // The tick of the keyframe, known from the index
+		byte[] data = new byte[file.readInt()];
+		file.readFully(data);
+
+		inflater.reset();
+		in = new DataInputStream(new BufferedInputStream(
+				new InflaterInputStream(new ByteArrayInputStream(data),
+						inflater, BUFFER_SIZE), BUFFER_SIZE));
+		byte[] keyframe = new byte[in.readInt()];
+		in.readFully(keyframe);
+		return keyframe;
+	}
+
+	// Reads the keys of the next tick, going on to the next block at the end
+	// of a block, if there is one. An error ends the replay, and is kept in
+	// error.
+	private void readNext() {
+		next = -1;
+		try {
+			while (in != null || block + 1 < blocks) {
+				if (in == null) {
+					if (ticks != blockTicks[block + 1]) {
+						throw new IOException("Replay block at tick " +
+								blockTicks[block + 1] + " follows tick " +
+								ticks);
+					}
+					openBlock(block + 1);
+				}
+				try {
+					next = in.readUnsignedShort();
+					return;
+				} catch (EOFException e) {
+					// The end of the block, unless the compressed data was
+					// cut short
+					if (!inflater.finished()) {
+						throw e;
+					}
+					in = null;
+				}
+			}
+		} catch (IOException e) {
+			in = null;
+			error = e;
+		}
+	}
+
+	/**
+	 * Plays a replay.
+	 *
+	 * @param args see the class description
+	 * @throws IOException if the replay could not be played
+	 */
+	public static void main(String[] args) throws IOException {
+		boolean show = false;
+		long seek = 0;
+		String file = null;
+		for (int i = 0; i < args.length; ++i) {
+			if (args[i].equals("-show")) {
+				show = true;
+			} else if (args[i].equals("-seek") && i + 1 < args.length) {
+				seek = Long.parseLong(args[++i]);
+			} else if (file == null && !args[i].startsWith("-")) {
+				file = args[i];
+			} else {
+				file = null;
+				break;
+			}
+		}
+		if (file == null) {
+			System.err.println(
+					"Usage: java ReplayPlayer [-show] [-seek TICK] FILE");
+			System.exit(1);
+		}
+
+		ReplayPlayer player = new ReplayPlayer(new File(file));
+		if (show) {
+			Game game = player.createGame(false);
+			player.seek(seek);
+			game.runGameLoop();
+			return;
+		}
+
+		long start = System.nanoTime();
+		Game game = player.createGame(true);
+		player.seek(seek);
+		double seekSeconds = (System.nanoTime() - start)/1e9;
+		double deltaTime = 1.0/Config.SIMULATION_RATE;
+		while (!game.hasEnded() && !player.isFinished()) {
+			game.step(deltaTime);
+		}
+		player.close();
+		if (player.getError() != null) {
+			throw player.getError();
+		}
+		double seconds = (System.nanoTime() - start)/1e9;
+
+		double gameSeconds = (double) game.getTicks()/Config.SIMULATION_RATE;
+		System.out.printf("%s, seed %d, %d keyframes%n",
+				player.getGameClass(), player.getSeed(),
+				player.getKeyframeCount());
+		System.out.printf("Score: %d - %d after %d ticks (%.1f s)%s%n",
+				game.getScore(Config.PLAYER1_ID),
+				game.getScore(Config.PLAYER2_ID), game.getTicks(), gameSeconds,
+				game.hasEnded() ? "" : ", not finished");
+		if (seek > 0) {
+			System.out.printf("Sought tick %d in %.3f s%n", seek, seekSeconds);
+		}
+		System.out.printf("Played in %.3f s, %.0fx real time%n", seconds,
+				gameSeconds/seconds);
+	}
+}
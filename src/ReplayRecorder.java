@@ -0,0 +1,238 @@
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Records a game as a replay: the game's class and seed, the configuration it
+ * depends on, and the keys pressed at each tick. Since a game plays the same
+ * way again given the same seed and the same keys, this is all that is
+ * needed to play it back with a {@link ReplayPlayer}, and a whole match only
+ * takes a few kilobytes.
+ * <p>
+ * Every {@code Config.REPLAY_KEYFRAME_INTERVAL} ticks, the recorder also
+ * saves the whole state of the game in a keyframe, so that a player can seek
+ * to any tick by restoring the keyframe before it and simulating only the
+ * ticks from there, instead of simulating the match from the start.
+ * </p>
+ * <p>
+ * The replay is written as the game goes, in blocks that each hold a
+ * keyframe and the keys of the ticks up to the next keyframe. Each block is
+ * compressed on its own, so that it can be read without the blocks before
+ * it. An index of the blocks is written at the end of the file when the
+ * recorder is closed; if the program stops before that, the blocks written
+ * so far can still be played. Use {@link Game#startRecording(ReplayRecorder)}
+ * to record a game.
+ * </p>
+ * <p>
+ * File format:
+ * </p>
+ * <ul>
+ * <li>{@code MAGIC} (int) and {@code VERSION} (int)</li>
+ * <li>the name of the game's class (UTF string)</li>
+ * <li>the game's seed (long)</li>
+ * <li>{@code Config.SIMULATION_RATE} and {@code Config.POINTS_TO_WIN}
+ * (int)</li>
+ * <li>the blocks, each made of the tick of its keyframe (long), the length of
+ * the rest of the block (int), and, compressed with {@link Deflater}:
+ * <ul>
+ * <li>the length of the keyframe (int) and the keyframe, as written by
+ * {@link Game#writeKeyframe}</li>
+ * <li>for each tick from the keyframe on, the bitwise OR of the {@code
+ * Keyboard.BUTTON_} constants of the keys pressed (short)</li>
+ * </ul></li>
+ * <li>the index: the number of blocks (int), and the tick of the keyframe
+ * and the offset in the file of each block (long)</li>
+ * <li>the offset of the index (long) and {@code MAGIC} (int)</li>
+ * </ul>
+ */
+public class ReplayRecorder {
+	/**
+	 * Identifies a replay file.
+	 */
+	public static final int MAGIC = 0x47435231; // "GCR1"
+
+	/**
+	 * Version of the file format.
+	 */
+	public static final int VERSION = 2;
+
+	/**
+	 * Size of the uncompressed start of a block: its tick and its length.
+	 */
+	static final int BLOCK_HEADER_BYTES = 12;
+
+	/**
+	 * Size of the end of the file that locates the index.
+	 */
+	static final int TRAILER_BYTES = 12;
+
+	/**
+	 * Size of the buffers in front of and behind the compressor.
+	 */
+	private static final int BUFFER_SIZE = 8192;
+
+	private final Game game;
+	private final Deflater deflater =
+		new Deflater(Deflater.BEST_COMPRESSION);
+	private final DataOutputStream out;
+
+	/**
+	 * The block being recorded, compressed as it is written. {@code
+	 * blockOut} is {@code null} until the first block is started.
+	 */
+	private final ByteArrayOutputStream block =
+		new ByteArrayOutputStream(BUFFER_SIZE);
+	private DataOutputStream blockOut;
+	private long blockTick;
+
+	/**
+	 * Scratch buffer a keyframe is written to, to find out its length.
+	 */
+	private final ByteArrayOutputStream keyframe = new ByteArrayOutputStream();
+
+	/**
+	 * The tick of the keyframe and the offset of each block written so far.
+	 */
+	private long[] blockTicks = new long[16];
+	private long[] blockOffsets = new long[16];
+	private int blocks = 0;
+
+	private long ticks = 0;
+
+	/**
+	 * Creates a replay file for a game and writes its header. The game must
+	 * not have been stepped yet.
+	 *
+	 * @param file the file to write
+	 * @param game the game to record
+	 * @throws IOException if the file could not be written
+	 */
+	public ReplayRecorder(File file, Game game) throws IOException {
+		this.game = game;
+		out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(file), BUFFER_SIZE));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeUTF(game.getClass().getName());
+			out.writeLong(game.getSeed());
+			out.writeInt(Config.SIMULATION_RATE);
+			out.writeInt(Config.POINTS_TO_WIN);
+			out.flush();
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Called by the game at the very start of each tick, before anything of
+	 * the tick has happened. At the first tick and every {@code
+	 * Config.REPLAY_KEYFRAME_INTERVAL} ticks after it, this saves the state
+	 * of the game in a keyframe, which starts a new block.
+	 *
+	 * @throws IOException if the file could not be written
+	 */
+	public void beginTick() throws IOException {
+		if (ticks % Config.REPLAY_KEYFRAME_INTERVAL == 0) {
+			startBlock();
+		}
+	}
+
+	/**
+	 * Appends the keys pressed during a tick.
+	 *
+	 * @param buttons the bitwise OR of the {@code Keyboard.BUTTON_} constants
+	 * of the pressed keys
+	 * @throws IOException if the file could not be written
+	 * @throws IllegalStateException if {@link #beginTick()} has not been
+	 * called first
+	 */
+	public void record(int buttons) throws IOException {
+		if (blockOut == null) {
+			throw new IllegalStateException("No tick has begun");
+		}
+		blockOut.writeShort(buttons);
+		++ticks;
+	}
+
+	/**
+	 * Returns the number of ticks recorded so far.
+	 *
+	 * @return the number of ticks.
+	 */
+	public long getTicks() {
+		return ticks;
+	}
+
+	/**
+	 * Finishes the replay and closes the file.
+	 *
+	 * @throws IOException if the file could not be written
+	 */
+	public void close() throws IOException {
+		try {
+			finishBlock();
+			long indexOffset = out.size();
+			out.writeInt(blocks);
+			for (int i = 0; i < blocks; ++i) {
+				out.writeLong(blockTicks[i]);
+				out.writeLong(blockOffsets[i]);
+			}
+			out.writeLong(indexOffset);
+			out.writeInt(MAGIC);
+		} finally {
+			try {
+				out.close();
+			} finally {
+				deflater.end();
+			}
+		}
+	}
+
+	// Writes out the current block, if any, and starts the next one with a
+	// keyframe of the game
+	private void startBlock() throws IOException {
+		finishBlock();
+
+		keyframe.reset();
+		game.writeKeyframe(new DataOutputStream(keyframe));
+
+		block.reset();
+		blockOut = new DataOutputStream(new BufferedOutputStream(
+				new DeflaterOutputStream(block, deflater, BUFFER_SIZE),
+				BUFFER_SIZE));
+		blockTick = ticks;
+		blockOut.writeInt(keyframe.size());
+		keyframe.writeTo(blockOut);
+	}
+
+	// Compresses the rest of the current block and writes it to the file
+	private void finishBlock() throws IOException {
+		if (blockOut == null) {
+			return;
+		}
+		blockOut.close();
+		blockOut = null;
+		deflater.reset();
+
+		if (blocks == blockTicks.length) {
+			blockTicks = Arrays.copyOf(blockTicks, 2*blocks);
+			blockOffsets = Arrays.copyOf(blockOffsets, 2*blocks);
+		}
+		blockTicks[blocks] = blockTick;
+		blockOffsets[blocks] = out.size();
+		++blocks;
+
+		out.writeLong(blockTick);
+		out.writeInt(block.size());
+		block.writeTo(out);
+		out.flush();
+	}
+}
@@ -1,3 +1,7 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 /**
  * This class represents a ship. A ship can be in one of three states:
  * <ul>
@@ -41,10 +45,9 @@ public class Ship extends GameObject {
  	// class variables you add must be declared private!
     private int playerID;
     private int playerState;
-    private GameTimer respawnTimer;
-    private GameTimer firingTimer;
+    private TickTimer respawnTimer;
+    private TickTimer firingTimer;
 	private Position reset;
-	private Position bulletPosition;
 	private double bulletRotation;
 	private Flag shipFlag;
 
@@ -70,6 +73,7 @@ public class Ship extends GameObject {
         setImage(Config.SHIP_CAPTURING_IMG[playerID]);
         setVisible(true);
         setCollidable(true);
+        setCollisionType(CollisionType.SHIP);
         this.playerID = playerID;
         playerState = CAPTURING;
        
@@ -78,9 +82,16 @@ public class Ship extends GameObject {
 		// Set the rotation of the ship using setRotation().
         setRotation(rotation);
         
-        //Create Timers
-        respawnTimer = new GameTimer();
-        firingTimer = new GameTimer();
+        //Create Timers. The ship respawns as soon as the respawn timer
+        //expires; the firing timer only has to be checked before firing.
+        respawnTimer = new TickTimer(game.getTimers(), new TimerCallback() {
+        	public void timerExpired() {
+        		if(getState() == DESTROYED){
+        			respawnShip();
+        		}
+        	}
+        });
+        firingTimer = new TickTimer(game.getTimers(), null);
     }
 
  	/**
@@ -132,9 +143,9 @@ public class Ship extends GameObject {
      * Called automatically at each game tick to handle the ship's game logic.
      * If the ship is not in the Destroyed state, updates the ship's position
      * and destroys the ship if it has collided with the boundary of the playing
-     * field. Otherwise, if the ship is destroyed and the respawn timer has
-     * expired, respawns the ship in the Capturing state at its original
-     * position and with its original speed and rotation.
+     * field. A destroyed ship is respawned in the Capturing state at its
+     * original position and with its original speed and rotation when its
+     * respawn timer expires.
      * <p>
      * Do NOT call this method from your code! It is called automatically each
      * tick.
@@ -145,13 +156,7 @@ public class Ship extends GameObject {
     @Override
     public void update(double deltaTime) {
     	
-        // If the ship is destroyed, check if the respawn timer has expired, and
-        // if so respawn the ship.  
-    	if(getState() == DESTROYED && respawnTimer.hasTimerExpired()){
-			respawnShip();
-    	}
-    	
-        // Otherwise, if the ship is not destroyed, update its position.
+        // If the ship is not destroyed, update its position.
     	if(getState() != DESTROYED){
     		updatePosition(deltaTime);
 		}
@@ -162,24 +167,28 @@ public class Ship extends GameObject {
 		// similarly for the Y coordinate and the height of the playing field).
     	
     	//Current Position of the Ship
-    	Position ShipPos = getPosition();
-    	double yPos;
+    	double xPos = getX();
+    	double yPos = getY();
     	//If ship goes over left and right boundaries
-    	if( (ShipPos.getX() - Config.SHIP_RADIUS < 0) || 
-    			(ShipPos.getX() + Config.SHIP_RADIUS > Config.GAME_WIDTH )){
+    	if( (xPos - Config.SHIP_RADIUS < 0) || 
+    			(xPos + Config.SHIP_RADIUS > Config.GAME_WIDTH )){
     		if( getState() != DESTROYED){
     		destroyShip();
     		
     		}
     	}
     	//If ship goes over top and bottom boundaries
-		if (getPosition().getY() 
-		- Config.SHIP_RADIUS < 0 || getPosition().getY() + 
+		if (yPos 
+		- Config.SHIP_RADIUS < 0 || yPos + 
 		Config.SHIP_RADIUS > Config.GAME_HEIGHT){
-			yPos = (wrap(Config.GAME_HEIGHT, getPosition().getY()));
-		} else {yPos = getPosition().getY();}
+			yPos = (wrap(Config.GAME_HEIGHT, yPos));
+		}
 		
-		setPosition(getPosition().getX(), yPos);
+		// Only move the ship if it wrapped around. setPosition() is a jump,
+		// so it would keep the ship from being drawn smoothly between ticks.
+		if (yPos != getY()) {
+			setPosition(getX(), yPos);
+		}
     	
     }
 
@@ -316,28 +325,26 @@ public class Ship extends GameObject {
     	
     	// If the ship is destroyed or the timer hasn't expired, it can't fire
     	// and this method does nothing.
-    	if(getState() == DESTROYED || !firingTimer.hasTimerExpired()){
+    	if(getState() == DESTROYED || firingTimer.isPending()){
     		return;
     	// Otherwise, set the firing timer.
     	}else{
-    		firingTimer.startTimer(Config.SHIP_FIRE_DELAY);
+    		firingTimer.start(Config.SHIP_FIRE_DELAY);
     	}
         
     	
         // If the ship is in the Capturing state, first calculate the position
-		// of the new bullet. Get a copy of the ship's position, then move that
-		// position in the direction of the ship's rotation using the
-		// moveInDirection() method provided by Position objects. The distance
-		// moved should be equal to the ship's radius plus the bullet's radius.
-        // Finally, create the new bullet and add it to the game.
+		// of the new bullet: the ship's position moved in the direction of the
+		// ship's rotation by the ship's radius plus the bullet's radius.
+        // Finally, take a bullet from the game's pool and add it to the game.
     	if(getState() == CAPTURING){
-    		bulletPosition = getPosition();
     		bulletRotation = getRotation();
-    		bulletPosition.moveInDirection(bulletRotation,(Config.SHIP_RADIUS + 
-    				Config.BULLET_RADIUS));
+    		double distance = Config.SHIP_RADIUS + Config.BULLET_RADIUS;
+    		double bulletX = getX() + distance*Math.cos(bulletRotation);
+    		double bulletY = getY() + distance*Math.sin(bulletRotation);
     		
-    		Bullet bullet = new Bullet(getGame(), 
-    				bulletPosition, bulletRotation);
+    		Bullet bullet = getGame().getBulletPool().acquire(bulletX,
+    				bulletY, bulletRotation);
     		getGame().addGameObject(bullet);
     	}
 		// If the ship is in the Scoring state, drop the flag and enter the
@@ -372,7 +379,7 @@ public class Ship extends GameObject {
 		}
 		playerState = DESTROYED;
 		setImage(Config.SHIP_DESTROYED_IMG);
-		respawnTimer.startTimer(Config.SHIP_RESPAWN_TIME);
+		respawnTimer.start(Config.SHIP_RESPAWN_TIME);
 		rotate(0);
 		setCollidable(false);
 		setPosition(getPosition());
@@ -398,6 +405,39 @@ public class Ship extends GameObject {
 		}else{setRotation(Config.SHIP_PLAYER1_ROTATION);}
 	}
 	
+	/**
+	 * Writes the state of this ship to a replay keyframe, including its
+	 * timers and the flag it carries.
+	 */
+	@Override
+	void writeState(DataOutput out) throws IOException {
+		super.writeState(out);
+		out.writeInt(playerState);
+		respawnTimer.writeState(out);
+		firingTimer.writeState(out);
+		out.writeInt(shipFlag != null ? shipFlag.getHandle()
+				: EntityHandles.NONE);
+	}
+
+	/**
+	 * Reads the state written by {@link #writeState} back into this ship.
+	 */
+	@Override
+	void readState(DataInput in) throws IOException {
+		super.readState(in);
+		playerState = in.readInt();
+		respawnTimer.readState(in);
+		firingTimer.readState(in);
+		shipFlag = (Flag) getGame().getGameObject(in.readInt());
+		if (playerState == SCORING) {
+			setImage(Config.SHIP_SCORING_IMG[getPlayerID()]);
+		} else if (playerState == DESTROYED) {
+			setImage(Config.SHIP_DESTROYED_IMG);
+		} else {
+			setImage(Config.SHIP_CAPTURING_IMG[getPlayerID()]);
+		}
+	}
+
 	public static double wrap(int size, double coord) {
 
 	double finalCoord;
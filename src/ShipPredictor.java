@@ -0,0 +1,261 @@
+/**
+ * Predicts where a player's own ship is, so that a {@link GameClient} can
+ * show the ship reacting to the player's keys at once instead of a round trip
+ * later. Each input sent to the server is also applied to a local copy of the
+ * ship, using the same rules as {@link Ship#rotate(double)}, {@link
+ * Ship#accelerate(double)} and {@link Ship#update(double)}, and remembered.
+ * <p>
+ * When a state arrives from the server, the ship is put where the server
+ * says it was after the last input the server applied, and the inputs the
+ * server has not applied yet are applied again on top of that. If the result
+ * differs from what was predicted, e.g. because the ship hit something, the
+ * difference is shown fading out over a few ticks instead of making the ship
+ * jump.
+ * </p>
+ * <p>
+ * Only the ship's movement is predicted. Bullets, collisions and the flags
+ * are left to the server.
+ * </p>
+ */
+public class ShipPredictor {
+	/*
+	 * The keys that turn, speed up, slow down and fire each player's ship,
+	 * indexed by player ID, as handled by handleInput().
+	 */
+	private static final int[] LEFT = {Keyboard.BUTTON_A, Keyboard.BUTTON_LEFT};
+	private static final int[] RIGHT = {Keyboard.BUTTON_D,
+		Keyboard.BUTTON_RIGHT};
+	private static final int[] FORWARD = {Keyboard.BUTTON_W,
+		Keyboard.BUTTON_UP};
+	private static final int[] BACK = {Keyboard.BUTTON_S,
+		Keyboard.BUTTON_DOWN};
+
+	private final int playerID;
+	private final int shipHandle;
+	private final double deltaTime;
+
+	/*
+	 * The predicted ship.
+	 */
+	private boolean hasState = false;
+	private double x, y, rotation, speed;
+	private boolean destroyed;
+
+	/*
+	 * What is still shown of the last corrections.
+	 */
+	private double errorX, errorY, errorRotation;
+
+	/*
+	 * The inputs the server has not applied yet, oldest first, in a ring.
+	 */
+	private final int[] sequence = new int[Config.PREDICTION_HISTORY];
+	private final int[] buttons = new int[Config.PREDICTION_HISTORY];
+	private int first = 0;
+	private int count = 0;
+
+	private double lastCorrection = 0;
+
+	/**
+	 * Creates a predictor for a player's ship.
+	 *
+	 * @param playerID the ID of the player
+	 * @param shipHandle the handle of the player's ship on the server
+	 * @param tickRate the number of ticks the server simulates per second
+	 */
+	public ShipPredictor(int playerID, int shipHandle, int tickRate) {
+		this.playerID = playerID;
+		this.shipHandle = shipHandle;
+		this.deltaTime = 1.0/tickRate;
+	}
+
+	/**
+	 * Applies an input that has just been sent to the server, and remembers
+	 * it until the server has applied it too. Call this once per tick.
+	 *
+	 * @param sequenceNumber the sequence number of the input
+	 * @param pressed the buttons sent
+	 */
+	public void predict(int sequenceNumber, int pressed) {
+		if (count == sequence.length) {
+			// Too far ahead of the server; forget the oldest input
+			first = (first + 1) % sequence.length;
+			--count;
+		}
+		int i = (first + count) % sequence.length;
+		sequence[i] = sequenceNumber;
+		buttons[i] = pressed;
+		++count;
+
+		if (hasState) {
+			apply(pressed);
+		}
+		errorX *= Config.PREDICTION_SMOOTHING;
+		errorY *= Config.PREDICTION_SMOOTHING;
+		errorRotation *= Config.PREDICTION_SMOOTHING;
+	}
+
+	/**
+	 * Corrects the predicted ship with a state received from the server.
+	 *
+	 * @param state the state of the game
+	 * @param acked the sequence number of the last input the server applied
+	 * before capturing the state
+	 */
+	public void reconcile(NetworkState state, int acked) {
+		int index = -1;
+		for (int i = 0; i < state.size(); ++i) {
+			if (state.getHandle(i) == shipHandle) {
+				index = i;
+				break;
+			}
+		}
+		if (index < 0) {
+			return;
+		}
+
+		// Forget the inputs the server has applied
+		while (count > 0 && sequence[first] - acked <= 0) {
+			first = (first + 1) % sequence.length;
+			--count;
+		}
+
+		// Start again from the server's ship and apply the rest
+		boolean hadState = hasState;
+		boolean wasDestroyed = destroyed;
+		double oldX = getX(), oldY = getY(), oldRotation = getRotation();
+		x = state.getX(index);
+		y = state.getY(index);
+		rotation = state.getRotation(index);
+		speed = state.getSpeed(index);
+		destroyed = (state.getFlags(index) & NetworkState.COLLIDABLE) == 0;
+		hasState = true;
+		for (int k = 0; k < count; ++k) {
+			apply(buttons[(first + k) % buttons.length]);
+		}
+
+		// Show the correction fading out, unless the ship really jumped
+		double dx = oldX - x, dy = oldY - y;
+		lastCorrection = hadState ? Math.hypot(dx - errorX, dy - errorY) : 0;
+		if (!hadState || destroyed != wasDestroyed ||
+				Math.hypot(dx, dy) > Config.PREDICTION_SNAP_DISTANCE) {
+			errorX = errorY = errorRotation = 0;
+		} else {
+			errorX = dx;
+			errorY = dy;
+			errorRotation = Math.IEEEremainder(oldRotation - rotation,
+					2*Math.PI);
+		}
+	}
+
+	/**
+	 * Returns {@code true} once a state from the server has been received.
+	 *
+	 * @return {@code true} if the ship is being predicted.
+	 */
+	public boolean hasState() {
+		return hasState;
+	}
+
+	/**
+	 * Returns the x coordinate to draw the ship at.
+	 *
+	 * @return the predicted x coordinate, with the correction still shown.
+	 */
+	public double getX() {
+		return x + errorX;
+	}
+
+	/**
+	 * Returns the y coordinate to draw the ship at.
+	 *
+	 * @return the predicted y coordinate, with the correction still shown.
+	 */
+	public double getY() {
+		return y + errorY;
+	}
+
+	/**
+	 * Returns the rotation to draw the ship with.
+	 *
+	 * @return the predicted rotation, with the correction still shown.
+	 */
+	public double getRotation() {
+		return rotation + errorRotation;
+	}
+
+	/**
+	 * Returns the speed of the ship, in pixels per second. Corrections are
+	 * not faded out for the speed.
+	 *
+	 * @return the predicted speed.
+	 */
+	public double getSpeed() {
+		return speed;
+	}
+
+	/**
+	 * Returns {@code true} if the ship is predicted to be destroyed.
+	 *
+	 * @return {@code true} if the ship is destroyed.
+	 */
+	public boolean isDestroyed() {
+		return destroyed;
+	}
+
+	/**
+	 * Returns how far the last state from the server moved the ship away from
+	 * where it was predicted to be, which is zero as long as the predictions
+	 * are right.
+	 *
+	 * @return the distance in pixels.
+	 */
+	public double getLastCorrection() {
+		return lastCorrection;
+	}
+
+	/**
+	 * Returns the number of inputs the server has not applied yet.
+	 *
+	 * @return the number of pending inputs.
+	 */
+	public int getPendingInputs() {
+		return count;
+	}
+
+	/**
+	 * Simulates one tick of the ship with the given buttons pressed.
+	 */
+	private void apply(int pressed) {
+		boolean left = (pressed & LEFT[playerID]) != 0;
+		boolean right = (pressed & RIGHT[playerID]) != 0;
+		if (left != right && !destroyed) {
+			rotation += (left ? -1 : 1)*Config.SHIP_ROTATE_SPEED*deltaTime;
+		}
+
+		boolean forward = (pressed & FORWARD[playerID]) != 0;
+		boolean back = (pressed & BACK[playerID]) != 0;
+		if (forward != back) {
+			speed += (forward ? 1 : -1)*Config.SHIP_MAX_SPEED*deltaTime;
+			speed = Math.max(-Config.SHIP_MAX_SPEED,
+					Math.min(Config.SHIP_MAX_SPEED, speed));
+		}
+
+		if (destroyed) {
+			return;
+		}
+		if (speed != 0) {
+			x += deltaTime*(speed*Math.cos(rotation));
+			y += deltaTime*(speed*Math.sin(rotation));
+		}
+		if (x - Config.SHIP_RADIUS < 0 ||
+				x + Config.SHIP_RADIUS > Config.GAME_WIDTH) {
+			destroyed = true;
+			speed = 0;
+		}
+		if (y - Config.SHIP_RADIUS < 0 ||
+				y + Config.SHIP_RADIUS > Config.GAME_HEIGHT) {
+			y = Ship.wrap(Config.GAME_HEIGHT, y);
+		}
+	}
+}
@@ -0,0 +1,337 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Encodes {@link NetworkState}s compactly, for sending them over the network
+ * or storing them on disk. A state is encoded either in full or as the
+ * difference from an earlier state, the baseline, that the receiver already
+ * has. Objects are matched with the baseline by their handles, and only what
+ * changed is written: the objects that were removed, the fields of the
+ * objects that changed, and the objects that were added. An object that did
+ * not change at all, such as a base or an asteroid, costs nothing.
+ * <p>
+ * Values are packed into as few bits as they need: small numbers, such as
+ * the distance an object moved in one tick, take only a few bits. An encoded
+ * state always takes up a whole number of bytes.
+ * </p>
+ * <p>
+ * A codec keeps scratch space between calls, so reuse one codec instead of
+ * creating one per state, and do not share it between threads.
+ * </p>
+ */
+public class SnapshotCodec {
+	/**
+	 * Most bytes a single object takes up in an encoded state.
+	 */
+	public static final int MAX_OBJECT_BYTES = 32;
+
+	/*
+	 * The fields of an object, as marked in the mask of a changed object.
+	 */
+	private static final int X = 1;
+	private static final int Y = 2;
+	private static final int ROTATION = 4;
+	private static final int SPEED = 8;
+	private static final int FLAGS = 16;
+	private static final int STATE = 32;
+	private static final int FIELD_COUNT = 6;
+
+	/*
+	 * The bit stream being written or read.
+	 */
+	private ByteBuffer buffer;
+	private long bits;
+	private int bitCount;
+
+	/*
+	 * Scratch space for sorting out the objects of a state.
+	 */
+	private int[] removed = new int[16];
+	private int[] changed = new int[16];
+	private int[] changedMask = new int[16];
+	private int[] changedIndex = new int[16];
+	private int[] changedBase = new int[16];
+	private int[] added = new int[16];
+
+	/**
+	 * Writes a state to a buffer.
+	 *
+	 * @param state the state to encode
+	 * @param baseline the state to encode the difference from, which the
+	 * receiver must pass to {@link #decode}, or {@code null} to encode the
+	 * whole state
+	 * @param out the buffer to write to
+	 */
+	public void encode(NetworkState state, NetworkState baseline,
+			ByteBuffer out) {
+		// Sort the objects into removed, changed and added ones
+		int size = state.size;
+		int baseSize = baseline == null ? 0 : baseline.size;
+		allocate(Math.max(size, baseSize));
+		int removedCount = 0, changedCount = 0, addedCount = 0;
+		int i = 0, j = 0, matched = 0;
+		while (i < size || j < baseSize) {
+			if (j == baseSize || (i < size &&
+					state.handle[i] < baseline.handle[j])) {
+				added[addedCount++] = i++;
+			} else if (i == size || baseline.handle[j] < state.handle[i] ||
+					baseline.type[j] != state.type[i]) {
+				removed[removedCount++] = j++;
+			} else {
+				int mask = diff(state, i, baseline, j);
+				if (mask != 0) {
+					changed[changedCount] = matched;
+					changedMask[changedCount] = mask;
+					changedIndex[changedCount] = i;
+					changedBase[changedCount] = j;
+					++changedCount;
+				}
+				++matched;
+				++i;
+				++j;
+			}
+		}
+
+		begin(out);
+		writeBits((int) state.tick, 32);
+		writeBits(state.ended ? 1 : 0, 1);
+		boolean scores = baseline == null ||
+			!Arrays.equals(state.scores, baseline.scores);
+		writeBits(scores ? 1 : 0, 1);
+		if (scores) {
+			writeUnsigned(state.scores[Config.PLAYER1_ID]);
+			writeUnsigned(state.scores[Config.PLAYER2_ID]);
+		}
+
+		// Objects are written as the gap from the previous one in the list
+		writeUnsigned(removedCount);
+		for (int k = 0, previous = -1; k < removedCount; ++k) {
+			writeUnsigned(removed[k] - previous - 1);
+			previous = removed[k];
+		}
+
+		writeUnsigned(changedCount);
+		for (int k = 0, previous = -1; k < changedCount; ++k) {
+			writeUnsigned(changed[k] - previous - 1);
+			previous = changed[k];
+			int mask = changedMask[k], a = changedIndex[k], b = changedBase[k];
+			writeBits(mask, FIELD_COUNT);
+			if ((mask & X) != 0) {
+				writeSigned(state.x[a] - baseline.x[b]);
+			}
+			if ((mask & Y) != 0) {
+				writeSigned(state.y[a] - baseline.y[b]);
+			}
+			if ((mask & ROTATION) != 0) {
+				writeSigned(rotationDelta(state.rotation[a],
+						baseline.rotation[b]));
+			}
+			if ((mask & SPEED) != 0) {
+				writeSigned(state.speed[a] - baseline.speed[b]);
+			}
+			if ((mask & FLAGS) != 0) {
+				writeBits(state.flags[a], 2);
+			}
+			if ((mask & STATE) != 0) {
+				writeBits(state.state[a], 2);
+			}
+		}
+
+		writeUnsigned(addedCount);
+		for (int k = 0; k < addedCount; ++k) {
+			int a = added[k];
+			writeBits(state.handle[a], 32);
+			writeBits(state.type[a] + 1, 3);
+			writeSigned(state.x[a]);
+			writeSigned(state.y[a]);
+			writeBits(state.rotation[a], 16);
+			writeSigned(state.speed[a]);
+			writeBits(state.flags[a], 2);
+			writeBits(state.state[a], 2);
+		}
+
+		// Write out the last, partly filled byte
+		if (bitCount > 0) {
+			buffer.put((byte) bits);
+		}
+		buffer = null;
+	}
+
+	/**
+	 * Reads a state written by {@link #encode}.
+	 *
+	 * @param in the buffer to read from
+	 * @param baseline the baseline the state was encoded against, or {@code
+	 * null} if it was encoded in full
+	 * @param state the state to read into, which must not be {@code
+	 * baseline}
+	 */
+	public void decode(ByteBuffer in, NetworkState baseline,
+			NetworkState state) {
+		begin(in);
+		state.tick = readBits(32) & 0xffffffffL;
+		state.ended = readBits(1) != 0;
+		if (readBits(1) != 0) {
+			state.scores[Config.PLAYER1_ID] = readUnsigned();
+			state.scores[Config.PLAYER2_ID] = readUnsigned();
+		} else {
+			System.arraycopy(baseline.scores, 0, state.scores, 0,
+					state.scores.length);
+		}
+
+		// Keep the objects of the baseline that were not removed
+		int baseSize = baseline == null ? 0 : baseline.size;
+		int removedCount = readUnsigned();
+		allocate(removedCount);
+		for (int k = 0, previous = -1; k < removedCount; ++k) {
+			removed[k] = previous + readUnsigned() + 1;
+			previous = removed[k];
+		}
+		state.allocate(baseSize);
+		int size = 0;
+		for (int k = 0, j = 0; j < baseSize; ++j) {
+			if (k < removedCount && removed[k] == j) {
+				++k;
+			} else {
+				copy(baseline, j, state, size++);
+			}
+		}
+
+		int changedCount = readUnsigned();
+		for (int k = 0, a = -1; k < changedCount; ++k) {
+			a += readUnsigned() + 1;
+			int mask = readBits(FIELD_COUNT);
+			if ((mask & X) != 0) {
+				state.x[a] += readSigned();
+			}
+			if ((mask & Y) != 0) {
+				state.y[a] += readSigned();
+			}
+			if ((mask & ROTATION) != 0) {
+				state.rotation[a] = (state.rotation[a] + readSigned()) &
+					(NetworkState.ROTATION_STEPS - 1);
+			}
+			if ((mask & SPEED) != 0) {
+				state.speed[a] += readSigned();
+			}
+			if ((mask & FLAGS) != 0) {
+				state.flags[a] = readBits(2);
+			}
+			if ((mask & STATE) != 0) {
+				state.state[a] = readBits(2);
+			}
+		}
+
+		int addedCount = readUnsigned();
+		state.allocate(size + addedCount);
+		for (int k = 0; k < addedCount; ++k) {
+			int a = size++;
+			state.handle[a] = readBits(32);
+			state.type[a] = readBits(3) - 1;
+			state.x[a] = readSigned();
+			state.y[a] = readSigned();
+			state.rotation[a] = readBits(16);
+			state.speed[a] = readSigned();
+			state.flags[a] = readBits(2);
+			state.state[a] = readBits(2);
+		}
+		state.size = size;
+		state.sortByHandle();
+
+		// Skip the rest of the last byte
+		buffer = null;
+	}
+
+	// Returns the fields of object i of a that differ from object j of b
+	private static int diff(NetworkState a, int i, NetworkState b, int j) {
+		int mask = 0;
+		if (a.x[i] != b.x[j]) mask |= X;
+		if (a.y[i] != b.y[j]) mask |= Y;
+		if (a.rotation[i] != b.rotation[j]) mask |= ROTATION;
+		if (a.speed[i] != b.speed[j]) mask |= SPEED;
+		if (a.flags[i] != b.flags[j]) mask |= FLAGS;
+		if (a.state[i] != b.state[j]) mask |= STATE;
+		return mask;
+	}
+
+	// Returns the shortest turn from rotation b to rotation a
+	private static int rotationDelta(int a, int b) {
+		return (short) (a - b);
+	}
+
+	private static void copy(NetworkState from, int i, NetworkState to,
+			int j) {
+		to.handle[j] = from.handle[i];
+		to.type[j] = from.type[i];
+		to.x[j] = from.x[i];
+		to.y[j] = from.y[i];
+		to.rotation[j] = from.rotation[i];
+		to.speed[j] = from.speed[i];
+		to.flags[j] = from.flags[i];
+		to.state[j] = from.state[i];
+	}
+
+	private void allocate(int capacity) {
+		if (removed.length >= capacity) {
+			return;
+		}
+		capacity = Math.max(capacity, 2*removed.length);
+		removed = new int[capacity];
+		changed = new int[capacity];
+		changedMask = new int[capacity];
+		changedIndex = new int[capacity];
+		changedBase = new int[capacity];
+		added = new int[capacity];
+	}
+
+	private void begin(ByteBuffer buffer) {
+		this.buffer = buffer;
+		bits = 0;
+		bitCount = 0;
+	}
+
+	private void writeBits(int value, int n) {
+		bits |= (value & ((1L << n) - 1)) << bitCount;
+		bitCount += n;
+		while (bitCount >= 8) {
+			buffer.put((byte) bits);
+			bits >>>= 8;
+			bitCount -= 8;
+		}
+	}
+
+	private int readBits(int n) {
+		while (bitCount < n) {
+			bits |= (buffer.get() & 0xffL) << bitCount;
+			bitCount += 8;
+		}
+		int value = (int) (bits & ((1L << n) - 1));
+		bits >>>= n;
+		bitCount -= n;
+		return value;
+	}
+
+	/*
+	 * A number is written as the number of bits it needs, followed by those
+	 * bits. A signed number is first mapped to an unsigned one so that
+	 * numbers close to zero stay small: 0, -1, 1, -2, 2 become 0, 1, 2, 3, 4.
+	 */
+	private void writeUnsigned(int value) {
+		int n = 32 - Integer.numberOfLeadingZeros(value);
+		writeBits(n, 6);
+		writeBits(value, n);
+	}
+
+	private int readUnsigned() {
+		return readBits(readBits(6));
+	}
+
+	private void writeSigned(int value) {
+		writeUnsigned((value << 1) ^ (value >> 31));
+	}
+
+	private int readSigned() {
+		int value = readUnsigned();
+		return (value >>> 1) ^ -(value & 1);
+	}
+}
@@ -0,0 +1,154 @@
+import java.util.Arrays;
+
+/**
+ * A broad phase that sorts the game objects into a uniform grid of square
+ * cells covering the playing field. Two objects can only overlap if they share
+ * a cell, so each object only has to be tested against the few objects in the
+ * cells it touches.
+ * <p>
+ * The cell size is twice the largest collision radius in the game, so an
+ * object that did not move never touches more than four cells. Objects beyond
+ * the edge of the playing field are placed in the nearest border cells.
+ * </p>
+ */
+public class SpatialHashBroadPhase implements BroadPhase {
+	/**
+	 * The smallest allowed cell size in pixels, which keeps the grid from
+	 * getting too fine if every object in the game is tiny.
+	 */
+	private static final double MIN_CELL_SIZE = 16.;
+
+	/**
+	 * Index of the first entry in each cell, or -1 if the cell is empty.
+	 */
+	private int[] cellHead = new int[0];
+
+	/**
+	 * For each entry, the index of the next entry in the same cell, or -1.
+	 */
+	private int[] entryNext = new int[64];
+
+	/**
+	 * For each entry, the index of the object it refers to.
+	 */
+	private int[] entryObject = new int[64];
+
+	/*
+	 * Bounding box and range of grid cells of each object, indexed like the
+	 * entity store.
+	 */
+	private double[] minX = new double[16], minY = new double[16];
+	private double[] maxX = new double[16], maxY = new double[16];
+	private int[] cellX0 = new int[16], cellY0 = new int[16];
+	private int[] cellX1 = new int[16], cellY1 = new int[16];
+
+	/**
+	 * Scratch space for the bounding box of one object.
+	 */
+	private final double[] box = new double[4];
+
+	public void findPairs(EntityStore entities, CollisionPairs pairs) {
+		int n = entities.size();
+		ensureObjectCapacity(n);
+
+		// Record each object's bounding box and find the largest radius
+		double maxRadius = 0;
+		for (int i = 0; i < n; ++i) {
+			entities.boundingBox(i, box);
+			minX[i] = box[0];
+			minY[i] = box[1];
+			maxX[i] = box[2];
+			maxY[i] = box[3];
+			maxRadius = Math.max(maxRadius, entities.radius[i]);
+		}
+
+		// Size the grid so that no object at rest touches more than 2x2 cells
+		double cellSize = Math.max(2*maxRadius, MIN_CELL_SIZE);
+		int columns = (int) Math.ceil(Config.GAME_WIDTH/cellSize);
+		int rows = (int) Math.ceil(Config.GAME_HEIGHT/cellSize);
+		if (cellHead.length < columns*rows) {
+			cellHead = new int[columns*rows];
+		}
+		Arrays.fill(cellHead, 0, columns*rows, -1);
+
+		int entries = 0;
+		for (int i = 0; i < n; ++i) {
+			cellX0[i] = cell(minX[i], cellSize, columns);
+			cellY0[i] = cell(minY[i], cellSize, rows);
+			cellX1[i] = cell(maxX[i], cellSize, columns);
+			cellY1[i] = cell(maxY[i], cellSize, rows);
+
+			for (int cy = cellY0[i]; cy <= cellY1[i]; ++cy) {
+				for (int cx = cellX0[i]; cx <= cellX1[i]; ++cx) {
+					int c = cy*columns + cx;
+
+					// Pair this object with every earlier object in the cell
+					for (int e = cellHead[c]; e != -1; e = entryNext[e]) {
+						int j = entryObject[e];
+						// Objects that share several cells are only reported
+						// in the first cell they share.
+						if (cx == Math.max(cellX0[i], cellX0[j]) &&
+								cy == Math.max(cellY0[i], cellY0[j]) &&
+								overlaps(i, j)) {
+							pairs.add(j, i);
+						}
+					}
+
+					// Add this object to the cell
+					if (entries == entryNext.length) {
+						entryNext = Arrays.copyOf(entryNext, 2*entries);
+						entryObject = Arrays.copyOf(entryObject, 2*entries);
+					}
+					entryObject[entries] = i;
+					entryNext[entries] = cellHead[c];
+					cellHead[c] = entries;
+					++entries;
+				}
+			}
+		}
+
+		pairs.sort();
+	}
+
+	/**
+	 * Returns the grid cell containing the given coordinate, clamped to the
+	 * grid.
+	 */
+	private static int cell(double coord, double cellSize, int cells) {
+		int c = (int) Math.floor(coord/cellSize);
+		if (c < 0) {
+			return 0;
+		}
+		if (c >= cells) {
+			return cells - 1;
+		}
+		return c;
+	}
+
+	/**
+	 * Returns {@code true} if the bounding boxes of objects {@code i} and
+	 * {@code j} overlap.
+	 */
+	private boolean overlaps(int i, int j) {
+		return minX[i] <= maxX[j] && minX[j] <= maxX[i] &&
+				minY[i] <= maxY[j] && minY[j] <= maxY[i];
+	}
+
+	/**
+	 * Makes sure the per-object arrays can hold {@code n} objects.
+	 */
+	private void ensureObjectCapacity(int n) {
+		if (minX.length >= n) {
+			return;
+		}
+		int capacity = Math.max(n, 2*minX.length);
+		minX = Arrays.copyOf(minX, capacity);
+		minY = Arrays.copyOf(minY, capacity);
+		maxX = Arrays.copyOf(maxX, capacity);
+		maxY = Arrays.copyOf(maxY, capacity);
+		cellX0 = Arrays.copyOf(cellX0, capacity);
+		cellY0 = Arrays.copyOf(cellY0, capacity);
+		cellX1 = Arrays.copyOf(cellX1, capacity);
+		cellY1 = Arrays.copyOf(cellY1, capacity);
+	}
+}
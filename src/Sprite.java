@@ -0,0 +1,221 @@
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.Graphics;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * This class represents an image that is drawn to the screen. Do not use this
+ * class directly in your code. Call {@link GameObject#setImage(String)} to set
+ * the image for your game objects. See the {@link Asteroid} class for an
+ * example.
+ */
+public class Sprite {
+	/** The image to be drawn for this sprite, or null if not loaded yet */
+	private volatile Image image;
+
+	/** The location of the image, used to load it when it is first needed */
+	private String ref;
+
+	/**
+	 * The texture atlas holding the image, or null if the image is not in an
+	 * atlas. Set before {@code image}, so it is up to date once the image is.
+	 */
+	private Image atlas;
+
+	/** The position of the image in the atlas */
+	private int atlasX, atlasY;
+
+	/**
+	 * The images of this sprite rotated to each of {@code
+	 * Config.SPRITE_ROTATIONS} angles that are in the {@link SpriteStore}'s
+	 * cache, or null for the others. Only the store sets them.
+	 */
+	private final AtomicReferenceArray<Image> rotations =
+		new AtomicReferenceArray<Image>(Config.SPRITE_ROTATIONS);
+	
+	/**
+	 * Create a new sprite based on an image
+	 * 
+	 * @param image The image that is this sprite
+	 */
+	public Sprite(Image image) {
+		this.image = image;
+	}
+
+	/**
+	 * Create a new sprite for the image at the given location. The image is
+	 * not loaded until the sprite is first drawn or measured, so sprites can
+	 * be created without decoding any images (e.g., when there is no display).
+	 * 
+	 * @param ref The location of the image that is this sprite
+	 */
+	Sprite(String ref) {
+		this.ref = ref;
+	}
+
+	/**
+	 * Returns the image of this sprite, loading it first if necessary. Sprites
+	 * are shared between games, so only one thread may load the image.
+	 * 
+	 * @return The image that is this sprite
+	 */
+	Image getImage() {
+		Image loaded = image;
+		if (loaded == null) {
+			synchronized (this) {
+				loaded = image;
+				if (loaded == null) {
+					loaded = SpriteStore.loadImage(ref);
+					image = loaded;
+				}
+			}
+		}
+		return loaded;
+	}
+
+	/**
+	 * Makes this sprite draw the given area of a texture atlas, which holds
+	 * the sprite's image.
+	 * 
+	 * @param atlas the atlas
+	 * @param x the x coordinate of the image in the atlas
+	 * @param y the y coordinate of the image in the atlas
+	 * @param width the width of the image
+	 * @param height the height of the image
+	 */
+	void setAtlasRegion(BufferedImage atlas, int x, int y, int width,
+			int height) {
+		synchronized (this) {
+			this.atlas = atlas;
+			atlasX = x;
+			atlasY = y;
+			image = atlas.getSubimage(x, y, width, height);
+		}
+	}
+	
+	/**
+	 * Returns the image of this sprite rotated by {@code rotation/
+	 * Config.SPRITE_ROTATIONS} of a full turn, if it is in the {@link
+	 * SpriteStore}'s cache.
+	 * 
+	 * @param rotation the angle
+	 * @return the rotated image, or null if it is not cached.
+	 */
+	Image getCachedRotation(int rotation) {
+		return rotations.get(rotation);
+	}
+
+	/**
+	 * Called by the {@link SpriteStore} when it adds a rotated image of this
+	 * sprite to its cache, or discards one.
+	 * 
+	 * @param rotation the angle
+	 * @param image the rotated image, or null once it has been discarded
+	 */
+	void setCachedRotation(int rotation, Image image) {
+		rotations.set(rotation, image);
+	}
+
+	/**
+	 * Get the width of the drawn sprite
+	 * 
+	 * @return The width in pixels of this sprite
+	 */
+	public int getWidth() {
+		return getImage().getWidth(null);
+	}
+
+	/**
+	 * Get the height of the drawn sprite
+	 * 
+	 * @return The height in pixels of this sprite
+	 */
+	public int getHeight() {
+		return getImage().getHeight(null);
+	}
+	
+	/**
+	 * Draw the sprite onto the graphics context provided
+	 * 
+	 * @param g The graphics context on which to draw the sprite
+	 * @param x The x location at which to draw the sprite
+	 * @param y The y location at which to draw the sprite
+	 */
+	public void draw(Graphics g,int x,int y) {
+		Image image = getImage();
+		if (atlas == null) {
+			g.drawImage(image,x,y,null);
+			return;
+		}
+
+		// Copy the image straight out of the atlas
+		int w = image.getWidth(null), h = image.getHeight(null);
+		g.drawImage(atlas, x, y, x + w, y + h,
+				atlasX, atlasY, atlasX + w, atlasY + h, null);
+	}
+
+	/**
+	 * Draw the sprite onto the graphics context provided
+	 * 
+	 * @param g the graphics context on which to draw the sprite.
+	 * @param p the location at which to draw the center of the sprite.
+	 * @param angle the rotation of the sprite in radians.
+	 */
+	public void draw(Graphics g, Position p, double angle) {
+		draw(g, p.getX(), p.getY(), angle);
+	}
+
+	/**
+	 * Draw the sprite onto the graphics context provided
+	 * <p>
+	 * If {@code Config.SPRITE_ROTATIONS} is set, the angle is rounded to the
+	 * nearest of that many angles, and the image rotated to that angle is
+	 * taken from the {@link SpriteStore}'s cache. A sprite that is not rotated
+	 * is drawn as it is, without any transform.
+	 * </p>
+	 * 
+	 * @param g the graphics context on which to draw the sprite.
+	 * @param x the x location at which to draw the center of the sprite.
+	 * @param y the y location at which to draw the center of the sprite.
+	 * @param angle the rotation of the sprite in radians.
+	 */
+	public void draw(Graphics g, double x, double y, double angle) {
+		Graphics2D g2d = (Graphics2D) g;
+		Image image = getImage();
+		double w = image.getWidth(null), h = image.getHeight(null);
+
+		if (Config.SPRITE_ROTATIONS > 0) {
+			int rotation = (int) Math.round(angle/(2*Math.PI)*
+					Config.SPRITE_ROTATIONS) % Config.SPRITE_ROTATIONS;
+			if (rotation < 0) {
+				rotation += Config.SPRITE_ROTATIONS;
+			}
+			if (rotation == 0) {
+				draw(g, (int) Math.round(x - w/2), (int) Math.round(y - h/2));
+				return;
+			}
+			image = SpriteStore.getRotatedImage(this, rotation);
+			w = image.getWidth(null);
+			h = image.getHeight(null);
+			g2d.drawImage(image, (int) Math.round(x - w/2),
+					(int) Math.round(y - h/2), null);
+			return;
+		}
+
+		// The AffineTransform handles positioning the image on screen.  Note
+		// that the operations have to be performed "backwards".
+		AffineTransform afx = new AffineTransform();
+
+		// Translate to final position
+		afx.translate(x, y);
+		// Apply rotation
+		afx.rotate(angle);
+		// Center image on (0,0)
+		afx.translate(-w/2, -h/2);
+		
+		// Draw to screen
+		g2d.drawImage(image, afx, null);
+	}
+}
@@ -0,0 +1,422 @@
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Image;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.imageio.ImageIO;
+
+/**
+ * This class provides a means of storing the game images in memory for better
+ * performance. Do not use this class directly in your code. Call {@link
+ * GameObject#setImage(String)} to set the image for your game objects.  See
+ * the {@link Asteroid} class for an example.
+ * <p>
+ * The store is shared by every game in the program, so it is safe to use
+ * from several threads at once.
+ * </p>
+ * <p>
+ * The store also caches images of the sprites rotated to each of {@code
+ * Config.SPRITE_ROTATIONS} angles, which are rendered the first time they are
+ * drawn. Each sprite keeps its own rotated images, so drawing one takes no
+ * lock and allocates nothing. The cache holds at most {@code
+ * Config.SPRITE_CACHE_BYTES} of images and discards the ones rendered longest
+ * ago beyond that.
+ * </p>
+ * <p>
+ * {@link #preload()} decodes every image named in {@link Config} up front, in
+ * parallel, and packs them into a few texture atlases, so that no image has to
+ * be decoded while the game is running. Images that were not preloaded are
+ * still decoded the first time they are needed.
+ * </p>
+ */
+public class SpriteStore {
+	private static SpriteStore singleton = new SpriteStore();
+
+	private ConcurrentHashMap<String, Sprite> sprites =
+		new ConcurrentHashMap<String, Sprite>();
+
+	/**
+	 * Decoded images kept on disk, or {@code null} if disabled.
+	 */
+	private ImageCache imageCache = Config.IMAGE_CACHE ?
+		new ImageCache(new File(Config.IMAGE_CACHE_DIR)) : null;
+
+	/**
+	 * Keys in {@code imageCache} of the images loaded so far.
+	 */
+	private Set<String> cacheKeys = Collections.newSetFromMap(
+			new ConcurrentHashMap<String, Boolean>());
+
+	/**
+	 * Rotated images in the order they were rendered, to count their memory
+	 * and discard the oldest. Sprites are drawn from their own copy of the
+	 * references, which is only changed together with this map. Guarded by
+	 * the lock of the map itself.
+	 */
+	private LinkedHashMap<RotationKey, Image> rotations =
+		new LinkedHashMap<RotationKey, Image>();
+
+	/**
+	 * Memory used by the images in {@code rotations}, in bytes.
+	 */
+	private long rotationBytes = 0;
+	
+	// Prevent anybody from instantiating this class
+	private SpriteStore() { }
+
+	/**
+	 * Returns the sprite for the image at the given location. The image itself
+	 * is not decoded until the sprite is first drawn.
+	 * 
+	 * @param ref the location of the image
+	 * @return the {@link Sprite} for the image.
+	 */
+	public static Sprite getSprite(String ref) {
+		Sprite sprite = singleton.sprites.get(ref);
+		if (sprite != null) {
+			return sprite;
+		}
+
+		if (getResource(ref) == null) {
+			fail("Can't find image: " + ref);
+		}
+
+		// If another thread created the sprite first, use that one
+		sprite = new Sprite(ref);
+		Sprite existing = singleton.sprites.putIfAbsent(ref, sprite);
+		return existing != null ? existing : sprite;
+	}
+
+	/**
+	 * Loads and decodes the image at the given location. Called by a
+	 * {@link Sprite} the first time its image is needed.
+	 * 
+	 * @param ref the location of the image
+	 * @return the decoded image.
+	 */
+	static Image loadImage(String ref) {
+		BufferedImage sourceImage = decodeImage(ref);
+
+		// Without a display there is no screen format to convert to
+		if (GraphicsEnvironment.isHeadless()) {
+			return sourceImage;
+		}
+
+		Image image = createImage(sourceImage.getWidth(),
+				sourceImage.getHeight());
+
+		image.getGraphics().drawImage(sourceImage, 0, 0, null);
+
+		return image;
+	}
+
+	/**
+	 * Reads and decodes the image at the given location. If the image cache is
+	 * enabled, the decoded image is taken from the cache if it is there, and
+	 * added to the cache otherwise; it is then premultiplied ARGB.
+	 */
+	private static BufferedImage decodeImage(String ref) {
+		BufferedImage sourceImage = null;
+		try {
+			URL url = getResource(ref);
+			if (url == null) {
+				fail("Can't find image: " + ref);
+			}
+
+			if (singleton.imageCache == null) {
+				sourceImage = ImageIO.read(url);
+			} else {
+				byte[] data = readAll(url);
+				String key = ImageCache.key(data);
+				singleton.cacheKeys.add(key);
+				sourceImage = singleton.imageCache.get(key);
+				if (sourceImage == null) {
+					sourceImage = ImageIO.read(new ByteArrayInputStream(data));
+					if (sourceImage != null) {
+						sourceImage = ImageCache.toPremultiplied(sourceImage);
+						singleton.imageCache.put(key, sourceImage);
+					}
+				}
+			}
+		} catch (IOException e) {
+			fail("Failed to load: " + ref);
+		}
+		if (sourceImage == null) {
+			fail("Failed to load: " + ref);
+		}
+		return sourceImage;
+	}
+
+	/**
+	 * Reads all the bytes at the given location.
+	 */
+	private static byte[] readAll(URL url) throws IOException {
+		InputStream in = url.openStream();
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int n;
+			while ((n = in.read(buffer)) > 0) {
+				out.write(buffer, 0, n);
+			}
+			return out.toByteArray();
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Decodes every image named by a constant of {@link Config} whose name
+	 * ends in {@code _IMG} and packs them into texture atlases. See {@link
+	 * #preload(String[])}. Since that is every image of the game, the entries
+	 * of the image cache that none of them refers to are then deleted.
+	 */
+	public static void preload() {
+		Set<String> refs = new LinkedHashSet<String>();
+		try {
+			for (Field field : Config.class.getFields()) {
+				if (!field.getName().endsWith("_IMG")) {
+					continue;
+				}
+				Object value = field.get(null);
+				if (value instanceof String) {
+					refs.add((String) value);
+				} else if (value instanceof String[]) {
+					for (String ref : (String[]) value) {
+						refs.add(ref);
+					}
+				}
+			}
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException(e);
+		}
+		preload(refs.toArray(new String[refs.size()]));
+		if (singleton.imageCache != null) {
+			singleton.imageCache.retainOnly(singleton.cacheKeys);
+		}
+	}
+
+	/**
+	 * Decodes the images at the given locations on as many threads as there
+	 * are processors, and waits for all of them. The images are then packed
+	 * into texture atlases of at most {@code Config.ATLAS_SIZE} pixels square,
+	 * and the sprites for the images draw from the atlases from then on.
+	 * Images too large for an atlas keep an image of their own.
+	 * 
+	 * @param refs the locations of the images
+	 */
+	public static void preload(String[] refs) {
+		// Decode the images in parallel
+		final BufferedImage[] decoded = new BufferedImage[refs.length];
+		ExecutorService pool = Executors.newFixedThreadPool(
+				Runtime.getRuntime().availableProcessors());
+		try {
+			List<Future<BufferedImage>> futures =
+				new ArrayList<Future<BufferedImage>>();
+			for (final String ref : refs) {
+				futures.add(pool.submit(new Callable<BufferedImage>() {
+					public BufferedImage call() {
+						return decodeImage(ref);
+					}
+				}));
+			}
+			for (int i = 0; i < refs.length; ++i) {
+				decoded[i] = futures.get(i).get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		} catch (ExecutionException e) {
+			fail("Failed to load images: " + e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+
+		// Arrange the images on as few atlases as possible
+		AtlasPacker packer = new AtlasPacker(Config.ATLAS_SIZE);
+		for (BufferedImage image : decoded) {
+			packer.add(image.getWidth(), image.getHeight());
+		}
+		packer.pack();
+
+		BufferedImage[] atlases = new BufferedImage[packer.getPageCount()];
+		Graphics2D[] graphics = new Graphics2D[atlases.length];
+		for (int p = 0; p < atlases.length; ++p) {
+			atlases[p] = createImage(packer.getPageWidth(p),
+					packer.getPageHeight(p));
+			graphics[p] = atlases[p].createGraphics();
+			graphics[p].setComposite(AlphaComposite.Src);
+		}
+		for (int i = 0; i < refs.length; ++i) {
+			int p = packer.getPage(i);
+			if (p >= 0) {
+				graphics[p].drawImage(decoded[i], packer.getX(i),
+						packer.getY(i), null);
+			}
+		}
+		for (Graphics2D g : graphics) {
+			g.dispose();
+		}
+
+		// Only then let the sprites draw from the atlases
+		for (int i = 0; i < refs.length; ++i) {
+			Sprite sprite = getSprite(refs[i]);
+			BufferedImage image = decoded[i];
+			int p = packer.getPage(i);
+			if (p < 0) {
+				// Too large for an atlas
+				BufferedImage copy = createImage(image.getWidth(),
+						image.getHeight());
+				Graphics2D g = copy.createGraphics();
+				g.setComposite(AlphaComposite.Src);
+				g.drawImage(image, 0, 0, null);
+				g.dispose();
+				sprite.setAtlasRegion(copy, 0, 0, image.getWidth(),
+						image.getHeight());
+			} else {
+				sprite.setAtlasRegion(atlases[p], packer.getX(i),
+						packer.getY(i), image.getWidth(), image.getHeight());
+			}
+		}
+	}
+
+	/**
+	 * Returns the image of a sprite rotated by {@code rotation/
+	 * Config.SPRITE_ROTATIONS} of a full turn, rendering and caching it if it
+	 * is not in the cache. The rotated image is large enough to hold the
+	 * sprite at any angle, with the center of the sprite at its center.
+	 * 
+	 * @param sprite the sprite to rotate
+	 * @param rotation the angle, between 1 and {@code
+	 * Config.SPRITE_ROTATIONS - 1}
+	 * @return the rotated image.
+	 */
+	static Image getRotatedImage(Sprite sprite, int rotation) {
+		Image image = sprite.getCachedRotation(rotation);
+		if (image != null) {
+			return image;
+		}
+
+		// Render the rotation without holding the lock. If two threads both
+		// render it, the second image simply replaces the first.
+		image = sprite.getImage();
+		int w = image.getWidth(null), h = image.getHeight(null);
+		int size = (int) Math.ceil(Math.sqrt(w*w + h*h));
+		BufferedImage rotated = createImage(size, size);
+		Graphics2D g = rotated.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+				RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		g.translate(size/2.0, size/2.0);
+		g.rotate(2*Math.PI*rotation/Config.SPRITE_ROTATIONS);
+		g.translate(-w/2.0, -h/2.0);
+		g.drawImage(image, 0, 0, null);
+		g.dispose();
+
+		RotationKey key = new RotationKey(sprite, rotation);
+		synchronized (singleton.rotations) {
+			// Put the rotation at the end of the order, even if it was there
+			Image old = singleton.rotations.remove(key);
+			if (old != null) {
+				singleton.rotationBytes -= bytes(old);
+			}
+			singleton.rotations.put(key, rotated);
+			singleton.rotationBytes += bytes(rotated);
+			sprite.setCachedRotation(rotation, rotated);
+
+			// Discard the rotations rendered longest ago, but never the one
+			// that is about to be drawn
+			Iterator<Map.Entry<RotationKey, Image>> it =
+				singleton.rotations.entrySet().iterator();
+			while (singleton.rotationBytes > Config.SPRITE_CACHE_BYTES &&
+					singleton.rotations.size() > 1) {
+				Map.Entry<RotationKey, Image> eldest = it.next();
+				it.remove();
+				singleton.rotationBytes -= bytes(eldest.getValue());
+				eldest.getKey().sprite.setCachedRotation(
+						eldest.getKey().rotation, null);
+			}
+		}
+		return rotated;
+	}
+
+	/**
+	 * Creates an empty translucent image in the screen's format, or in ARGB
+	 * format if there is no screen.
+	 */
+	private static BufferedImage createImage(int width, int height) {
+		if (GraphicsEnvironment.isHeadless()) {
+			return new BufferedImage(width, height,
+					BufferedImage.TYPE_INT_ARGB);
+		}
+		GraphicsConfiguration gc = GraphicsEnvironment.
+			getLocalGraphicsEnvironment().getDefaultScreenDevice().
+			getDefaultConfiguration();
+		return gc.createCompatibleImage(width, height,
+				Transparency.TRANSLUCENT);
+	}
+
+	/**
+	 * Returns the memory used by an image, assuming 4 bytes per pixel.
+	 */
+	private static long bytes(Image image) {
+		return 4L*image.getWidth(null)*image.getHeight(null);
+	}
+
+	/**
+	 * Identifies a sprite rotated to one of the cached angles.
+	 */
+	private static class RotationKey {
+		private final Sprite sprite;
+		private final int rotation;
+
+		RotationKey(Sprite sprite, int rotation) {
+			this.sprite = sprite;
+			this.rotation = rotation;
+		}
+
+		public boolean equals(Object o) {
+			if (!(o instanceof RotationKey)) {
+				return false;
+			}
+			RotationKey other = (RotationKey) o;
+			return sprite == other.sprite && rotation == other.rotation;
+		}
+
+		public int hashCode() {
+			return 31*System.identityHashCode(sprite) + rotation;
+		}
+	}
+
+	private static URL getResource(String ref) {
+		return singleton.getClass().getClassLoader().getResource(ref);
+	}
+
+	private static void fail(String message) {
+		System.err.println(message);
+		System.exit(0);
+	}
+}
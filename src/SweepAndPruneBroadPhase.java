@@ -0,0 +1,144 @@
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+/**
+ * A broad phase that keeps the game objects sorted by the left edge of their
+ * bounding boxes. Sweeping through the sorted objects from left to right, an
+ * object only has to be tested against the objects whose left edge lies
+ * before its right edge.
+ * <p>
+ * Objects move only a little from one tick to the next, so the order from the
+ * previous tick is almost sorted already. It is kept between ticks and
+ * re-sorted with an insertion sort, which takes close to linear time on nearly
+ * sorted input.
+ * </p>
+ */
+public class SweepAndPruneBroadPhase implements BroadPhase {
+	/**
+	 * The objects in the order they were sorted into at the previous tick.
+	 */
+	private GameObject[] order = new GameObject[16];
+
+	/**
+	 * Number of objects in {@code order}.
+	 */
+	private int orderSize = 0;
+
+	/**
+	 * Maps each object to its index in the entity store.
+	 */
+	private IdentityHashMap<GameObject, Integer> indices =
+		new IdentityHashMap<GameObject, Integer>();
+
+	/*
+	 * Index and bounding box of each object, in sorted order.
+	 */
+	private int[] index = new int[16];
+	private double[] minX = new double[16], minY = new double[16];
+	private double[] maxX = new double[16], maxY = new double[16];
+
+	/**
+	 * Scratch space for the bounding box of one object.
+	 */
+	private final double[] box = new double[4];
+
+	public void findPairs(EntityStore entities, CollisionPairs pairs) {
+		int n = entities.size();
+		ensureCapacity(n);
+
+		indices.clear();
+		for (int i = 0; i < n; ++i) {
+			indices.put(entities.get(i), i);
+		}
+
+		// Drop objects that have been removed since the previous tick, keeping
+		// the rest in their previous order.
+		int kept = 0;
+		for (int k = 0; k < orderSize; ++k) {
+			Integer i = indices.remove(order[k]);
+			if (i != null) {
+				order[kept] = order[k];
+				index[kept] = i;
+				++kept;
+			}
+		}
+		// Whatever is left in the map was added since the previous tick
+		for (int i = 0; i < n; ++i) {
+			GameObject o = entities.get(i);
+			if (indices.containsKey(o)) {
+				order[kept] = o;
+				index[kept] = i;
+				++kept;
+			}
+		}
+		if (kept < orderSize) {
+			Arrays.fill(order, kept, orderSize, null);
+		}
+		orderSize = kept;
+
+		// Update the bounding boxes and restore the sorted order
+		for (int k = 0; k < orderSize; ++k) {
+			entities.boundingBox(index[k], box);
+			minX[k] = box[0];
+			minY[k] = box[1];
+			maxX[k] = box[2];
+			maxY[k] = box[3];
+		}
+		insertionSort();
+
+		// Sweep from left to right
+		for (int k = 0; k < orderSize; ++k) {
+			for (int m = k+1; m < orderSize && minX[m] <= maxX[k]; ++m) {
+				if (minY[k] <= maxY[m] && minY[m] <= maxY[k]) {
+					pairs.add(index[k], index[m]);
+				}
+			}
+		}
+
+		pairs.sort();
+	}
+
+	/**
+	 * Sorts the objects by the left edge of their bounding boxes.
+	 */
+	private void insertionSort() {
+		for (int k = 1; k < orderSize; ++k) {
+			GameObject o = order[k];
+			int i = index[k];
+			double x0 = minX[k], y0 = minY[k], x1 = maxX[k], y1 = maxY[k];
+
+			int m = k - 1;
+			while (m >= 0 && minX[m] > x0) {
+				order[m+1] = order[m];
+				index[m+1] = index[m];
+				minX[m+1] = minX[m];
+				minY[m+1] = minY[m];
+				maxX[m+1] = maxX[m];
+				maxY[m+1] = maxY[m];
+				--m;
+			}
+			order[m+1] = o;
+			index[m+1] = i;
+			minX[m+1] = x0;
+			minY[m+1] = y0;
+			maxX[m+1] = x1;
+			maxY[m+1] = y1;
+		}
+	}
+
+	/**
+	 * Makes sure the arrays can hold {@code n} objects.
+	 */
+	private void ensureCapacity(int n) {
+		if (order.length >= n) {
+			return;
+		}
+		int capacity = Math.max(n, 2*order.length);
+		order = Arrays.copyOf(order, capacity);
+		index = Arrays.copyOf(index, capacity);
+		minX = Arrays.copyOf(minX, capacity);
+		minY = Arrays.copyOf(minY, capacity);
+		maxX = Arrays.copyOf(maxX, capacity);
+		maxY = Arrays.copyOf(maxY, capacity);
+	}
+}
@@ -0,0 +1,176 @@
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+
+/**
+ * One of the text panels drawn on top of the game by {@link Graphics}. Do not
+ * use this class directly in your code; set the text of a panel with {@link
+ * Graphics#setPanelText(int, String)} and so on.
+ * <p>
+ * A panel remembers whether it has changed since it was last drawn, so that
+ * the renderer only redraws it when needed.
+ * </p>
+ * <p>
+ * Laying out and rasterizing text is slow, and the text of a panel rarely
+ * changes, so the text is rendered once into a transparent image that is
+ * then simply copied onto the screen. The image is rendered again the next
+ * time the panel is drawn after its text, font or color changed.
+ * </p>
+ */
+public class TextPanel {
+	/**
+	 * The text to be displayed, or "" (empty string) for a blank panel
+	 */
+	private String text = "";
+
+	/**
+	 * The text font of the panel
+	 */
+	private Font font;
+
+	/**
+	 * The text color of the panel
+	 */
+	private Color color;
+
+	/**
+	 * The position of the center of the panel
+	 */
+	private final Position position;
+
+	/**
+	 * True if the panel has changed since it was last drawn
+	 */
+	private boolean changed = true;
+
+	/**
+	 * The rendered text, or {@code null} if it has to be rendered again
+	 */
+	private BufferedImage image;
+
+	/**
+	 * The area covered by the rendered text, including a small margin
+	 */
+	private final Rectangle imageBounds = new Rectangle();
+
+	/**
+	 * Creates a blank panel centered at the given position.
+	 *
+	 * @param position the position of the center of the panel
+	 * @param font the font of the text
+	 * @param color the color of the text
+	 */
+	TextPanel(Position position, Font font, Color color) {
+		this.position = position;
+		this.font = font;
+		this.color = color;
+	}
+
+	void setText(String text) {
+		if (!text.equals(this.text)) {
+			this.text = text;
+			changed = true;
+			image = null;
+		}
+	}
+
+	void setFont(Font font) {
+		if (!font.equals(this.font)) {
+			this.font = font;
+			changed = true;
+			image = null;
+		}
+	}
+
+	void setColor(Color color) {
+		if (!color.equals(this.color)) {
+			this.color = color;
+			changed = true;
+			image = null;
+		}
+	}
+
+	String getText() {
+		return text;
+	}
+
+	Font getFont() {
+		return font;
+	}
+
+	Color getColor() {
+		return color;
+	}
+
+	/**
+	 * Returns {@code true} if the panel has changed since it was last drawn.
+	 */
+	boolean hasChanged() {
+		return changed;
+	}
+
+	/**
+	 * Computes the area covered by the text of this panel, with a small
+	 * margin.
+	 *
+	 * @param g a graphics context to measure the text with
+	 * @param bounds receives the area
+	 */
+	void getBounds(Graphics2D g, Rectangle bounds) {
+		if (image == null) {
+			render(g);
+		}
+		bounds.setBounds(imageBounds);
+	}
+
+	/**
+	 * Draws the text centered around the position of the panel.
+	 *
+	 * @param g the graphics context to draw on
+	 */
+	void draw(Graphics2D g) {
+		if (image == null) {
+			render(g);
+		}
+		g.drawImage(image, imageBounds.x, imageBounds.y, null);
+		changed = false;
+	}
+
+	/**
+	 * Renders the text into a new image, laid out as it would be drawn on
+	 * {@code g}.
+	 */
+	private void render(Graphics2D g) {
+		FontMetrics fontMetrics = g.getFontMetrics(font);
+		int x = getTextX(fontMetrics), y = getTextY(fontMetrics);
+		imageBounds.setBounds(x - 2, y - fontMetrics.getMaxAscent() - 2,
+				fontMetrics.stringWidth(text) + 4,
+				fontMetrics.getMaxAscent() + fontMetrics.getMaxDescent() + 4);
+
+		// The text is drawn without antialiasing, so every pixel is either
+		// opaque or transparent and the image can be copied without blending
+		image = g.getDeviceConfiguration().createCompatibleImage(
+				imageBounds.width, imageBounds.height, Transparency.BITMASK);
+		Graphics2D ig = image.createGraphics();
+		ig.setFont(font);
+		ig.setColor(color);
+		ig.drawString(text, x - imageBounds.x, y - imageBounds.y);
+		ig.dispose();
+	}
+
+	// Returns the x coordinate at which the text starts
+	private int getTextX(FontMetrics fontMetrics) {
+		float width = fontMetrics.stringWidth(text);
+		return (int) (position.getX() - width/2);
+	}
+
+	// Returns the y coordinate of the baseline of the text
+	private int getTextY(FontMetrics fontMetrics) {
+		float height = fontMetrics.getHeight();
+		return (int) (position.getY() - height/2);
+	}
+}
@@ -0,0 +1,108 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A timer that counts ticks of simulated time instead of reading a clock.
+ * Unlike a {@link GameTimer}, which has to be polled with {@code
+ * hasTimerExpired()} at every tick, a tick timer is kept in its game's {@link
+ * TimerWheel} and costs nothing until it expires. It then runs its callback,
+ * if it has one.
+ * <p>
+ * A timer can be started again after it has expired, or while it is still
+ * running, in which case it starts over.
+ * </p>
+ */
+public class TickTimer {
+	/**
+	 * The wheel that keeps this timer while it is running.
+	 */
+	private final TimerWheel wheel;
+
+	/**
+	 * The code to run when this timer expires, or {@code null}.
+	 */
+	private final TimerCallback callback;
+
+	/*
+	 * State managed by the wheel: the tick at which this timer expires, the
+	 * order in which it was started among all timers, and the neighbours of
+	 * this timer in its slot of the wheel.
+	 */
+	long deadline;
+	long sequence;
+	TickTimer previous, next;
+	boolean pending = false;
+
+	/**
+	 * Creates a timer that is not running.
+	 *
+	 * @param wheel the game's {@link TimerWheel} (see {@link
+	 * Game#getTimers()})
+	 * @param callback the code to run when the timer expires, or {@code null}
+	 * if the timer is only checked with {@link #isPending()}.
+	 */
+	public TickTimer(TimerWheel wheel, TimerCallback callback) {
+		this.wheel = wheel;
+		this.callback = callback;
+	}
+
+	/**
+	 * Starts the timer. The duration is rounded up to a whole number of ticks
+	 * of {@code 1/Config.SIMULATION_RATE} seconds of simulated time, and is
+	 * at least one tick. The wheel is advanced by simulated time, so this
+	 * holds however long the ticks of the game loop are.
+	 *
+	 * @param duration number of milliseconds to expiration
+	 */
+	public void start(long duration) {
+		wheel.schedule(this, (duration*Config.SIMULATION_RATE + 999)/1000);
+	}
+
+	/**
+	 * Stops the timer without running its callback. Does nothing if the
+	 * timer is not running.
+	 */
+	public void cancel() {
+		wheel.cancel(this);
+	}
+
+	/**
+	 * Returns {@code true} if the timer has been started and has not expired
+	 * or been canceled yet.
+	 *
+	 * @return {@code true} if the timer is running.
+	 */
+	public boolean isPending() {
+		return pending;
+	}
+
+	/**
+	 * Writes the state of this timer to a replay keyframe: the number of
+	 * ticks until it expires, or -1 if it is not running, and the order in
+	 * which it was started.
+	 */
+	void writeState(DataOutput out) throws IOException {
+		out.writeLong(pending ? deadline - wheel.getTick() : -1);
+		out.writeLong(sequence);
+	}
+
+	/**
+	 * Reads the state of this timer from a replay keyframe. The wheel must be
+	 * being restored from the same keyframe (see {@link
+	 * TimerWheel#readState}).
+	 */
+	void readState(DataInput in) throws IOException {
+		long ticks = in.readLong();
+		wheel.restore(this, ticks, in.readLong());
+	}
+
+	/**
+	 * Runs the callback of this timer. Called by the wheel.
+	 */
+	void expire() {
+		if (callback != null) {
+			callback.timerExpired();
+		}
+	}
+}
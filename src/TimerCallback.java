@@ -0,0 +1,9 @@
+/**
+ * Code to run when a {@link TickTimer} expires.
+ */
+public interface TimerCallback {
+	/**
+	 * Called by the game at the start of the tick at which the timer expires.
+	 */
+	void timerExpired();
+}
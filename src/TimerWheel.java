@@ -0,0 +1,218 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+
+/**
+ * Keeps the running {@link TickTimer}s of a game in a hashed timing wheel.
+ * The wheel is a ring of slots, one per tick; a timer that expires at tick
+ * {@code t} is kept in slot {@code t mod SLOTS}. Each time {@code
+ * 1/Config.SIMULATION_RATE} seconds have been simulated, which with a fixed
+ * timestep is at every tick of the game, the game advances the wheel by one
+ * slot and only looks at the timers in that slot, so starting, canceling and
+ * expiring a timer all take constant time, no matter how many timers are
+ * running. Timers further away than a full turn of the wheel simply stay in
+ * their slot until their tick comes around.
+ * <p>
+ * Since timers count simulated time rather than read a clock, they behave
+ * the same in real time and in a headless game, and they expire at exactly
+ * the same tick every time a game is replayed. When the game loop runs ticks
+ * of varying length and falls behind, the timers are advanced by the time
+ * simulated in each tick, just like the moving objects.
+ * </p>
+ */
+public class TimerWheel {
+	/**
+	 * Number of slots in the wheel. Must be a power of two.
+	 */
+	private static final int SLOTS = 256;
+
+	/**
+	 * First timer in each slot, in the order the timers were started.
+	 */
+	private final TickTimer[] heads = new TickTimer[SLOTS];
+	private final TickTimer[] tails = new TickTimer[SLOTS];
+
+	/**
+	 * The current tick.
+	 */
+	private long now = 0;
+
+	/**
+	 * Number of timers started so far.
+	 */
+	private long started = 0;
+
+	/**
+	 * Scratch list of the timers expiring at the current tick.
+	 */
+	private final ArrayList<TickTimer> expired = new ArrayList<TickTimer>();
+
+	/**
+	 * The timers read from a keyframe, until they are put back into the wheel.
+	 */
+	private final ArrayList<TickTimer> restored = new ArrayList<TickTimer>();
+
+	/**
+	 * Orders timers by when they were started.
+	 */
+	private static final Comparator<TickTimer> START_ORDER =
+		new Comparator<TickTimer>() {
+			public int compare(TickTimer a, TickTimer b) {
+				return a.sequence < b.sequence ? -1 :
+					a.sequence > b.sequence ? 1 : 0;
+			}
+		};
+
+	/**
+	 * Returns the current tick.
+	 *
+	 * @return the tick the wheel has been advanced to.
+	 */
+	public long getTick() {
+		return now;
+	}
+
+	/**
+	 * Advances the wheel tick by tick to the given tick, expiring every timer
+	 * due on the way. The timers due at the same tick expire in the order
+	 * they were started.
+	 *
+	 * @param tick the current tick of the game
+	 */
+	void advanceTo(long tick) {
+		while (now < tick) {
+			++now;
+			int slot = (int) (now & (SLOTS - 1));
+
+			// Take all due timers out of the slot before running any
+			// callback, since a callback may start or cancel other timers
+			TickTimer t = heads[slot];
+			while (t != null) {
+				TickTimer next = t.next;
+				if (t.deadline <= now) {
+					unlink(t);
+					expired.add(t);
+				}
+				t = next;
+			}
+
+			for (int i = 0; i < expired.size(); ++i) {
+				expired.get(i).expire();
+			}
+			expired.clear();
+		}
+	}
+
+	/**
+	 * Starts a timer that expires {@code ticks} ticks from now. A running
+	 * timer is restarted.
+	 */
+	void schedule(TickTimer timer, long ticks) {
+		if (timer.pending) {
+			unlink(timer);
+		}
+		timer.deadline = now + Math.max(ticks, 1);
+		timer.sequence = started++;
+		link(timer);
+	}
+
+	/**
+	 * Stops a timer if it is running.
+	 */
+	void cancel(TickTimer timer) {
+		if (timer.pending) {
+			unlink(timer);
+		}
+	}
+
+	/**
+	 * Writes the state of the wheel to a replay keyframe. The running timers
+	 * are written by the objects that own them.
+	 */
+	void writeState(DataOutput out) throws IOException {
+		out.writeLong(now);
+		out.writeLong(started);
+	}
+
+	/**
+	 * Starts restoring the wheel from a replay keyframe: stops every timer
+	 * and reads the state written by {@link #writeState}. The timers are then
+	 * read by their owners, and {@link #finishRestore()} starts them again.
+	 */
+	void readState(DataInput in) throws IOException {
+		for (int slot = 0; slot < SLOTS; ++slot) {
+			while (heads[slot] != null) {
+				unlink(heads[slot]);
+			}
+		}
+		restored.clear();
+		now = in.readLong();
+		started = in.readLong();
+	}
+
+	/**
+	 * Restores a timer read from a keyframe.
+	 *
+	 * @param ticks the number of ticks until the timer expires, or -1 if it
+	 * is not running
+	 * @param sequence the order in which the timer was started
+	 */
+	void restore(TickTimer timer, long ticks, long sequence) {
+		timer.sequence = sequence;
+		if (ticks >= 0) {
+			timer.deadline = now + ticks;
+			restored.add(timer);
+		}
+	}
+
+	/**
+	 * Starts the timers read from a keyframe again. They are put back in the
+	 * order they were first started, so that the timers due at the same tick
+	 * still expire in that order.
+	 */
+	void finishRestore() {
+		Collections.sort(restored, START_ORDER);
+		for (int i = 0; i < restored.size(); ++i) {
+			link(restored.get(i));
+		}
+		restored.clear();
+	}
+
+	/**
+	 * Puts a timer at the end of the slot of its deadline.
+	 */
+	private void link(TickTimer timer) {
+		int slot = (int) (timer.deadline & (SLOTS - 1));
+		timer.previous = tails[slot];
+		timer.next = null;
+		if (tails[slot] != null) {
+			tails[slot].next = timer;
+		} else {
+			heads[slot] = timer;
+		}
+		tails[slot] = timer;
+		timer.pending = true;
+	}
+
+	/**
+	 * Removes a running timer from its slot.
+	 */
+	private void unlink(TickTimer timer) {
+		int slot = (int) (timer.deadline & (SLOTS - 1));
+		if (timer.previous != null) {
+			timer.previous.next = timer.next;
+		} else {
+			heads[slot] = timer.next;
+		}
+		if (timer.next != null) {
+			timer.next.previous = timer.previous;
+		} else {
+			tails[slot] = timer.previous;
+		}
+		timer.previous = timer.next = null;
+		timer.pending = false;
+	}
+}
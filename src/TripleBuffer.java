@@ -0,0 +1,99 @@
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Passes the latest version of some state from one thread to another without
+ * locks and without either thread ever waiting for the other. There are
+ * three buffers: the writer fills the back buffer and publishes it, the
+ * reader reads the front buffer, and the third buffer holds the most
+ * recently published state until the reader takes it. States that are
+ * published faster than they are read are simply skipped.
+ * <p>
+ * Only one thread may write and only one thread may read.
+ * </p>
+ *
+ * @param <T> the type of the buffers
+ */
+public class TripleBuffer<T> {
+	/**
+	 * Set in {@code middle} when the middle buffer holds a state the reader
+	 * has not taken yet.
+	 */
+	private static final int FRESH = 4;
+	private static final int INDEX_MASK = 3;
+
+	private final Object[] buffers;
+
+	/**
+	 * The index of the buffer owned by the writer.
+	 */
+	private int back = 0;
+
+	/**
+	 * The index of the buffer owned by the reader.
+	 */
+	private int front = 1;
+
+	/**
+	 * The index of the buffer in between, and the {@code FRESH} flag. Swapping
+	 * a buffer through this variable also makes what was written to it
+	 * visible to the other thread.
+	 */
+	private final AtomicInteger middle = new AtomicInteger(2);
+
+	/**
+	 * Creates a triple buffer from three distinct buffers. The reader starts
+	 * out reading {@code second}.
+	 *
+	 * @param first the first buffer
+	 * @param second the second buffer
+	 * @param third the third buffer
+	 */
+	public TripleBuffer(T first, T second, T third) {
+		buffers = new Object[] { first, second, third };
+	}
+
+	/**
+	 * Returns the buffer the writer should fill. Only call this on the writing
+	 * thread.
+	 *
+	 * @return the back buffer.
+	 */
+	@SuppressWarnings("unchecked")
+	public T getBack() {
+		return (T) buffers[back];
+	}
+
+	/**
+	 * Publishes the back buffer to the reader, and gives the writer another
+	 * buffer to fill. Only call this on the writing thread.
+	 */
+	public void publish() {
+		back = middle.getAndSet(back | FRESH) & INDEX_MASK;
+	}
+
+	/**
+	 * Takes the most recently published buffer as the front buffer, if one
+	 * has been published since the last call. Only call this on the reading
+	 * thread.
+	 *
+	 * @return {@code true} if the front buffer changed.
+	 */
+	public boolean update() {
+		if ((middle.get() & FRESH) == 0) {
+			return false;
+		}
+		front = middle.getAndSet(front) & INDEX_MASK;
+		return true;
+	}
+
+	/**
+	 * Returns the buffer the reader should read. Only call this on the reading
+	 * thread.
+	 *
+	 * @return the front buffer.
+	 */
+	@SuppressWarnings("unchecked")
+	public T getFront() {
+		return (T) buffers[front];
+	}
+}
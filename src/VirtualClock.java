@@ -0,0 +1,36 @@
+/**
+ * A {@link GameClock} that only moves when it is advanced. A headless game
+ * advances its virtual clock by the simulated time of each tick, so timers
+ * behave exactly as they would in real time no matter how fast the
+ * simulation actually runs.
+ */
+public class VirtualClock implements GameClock {
+	/**
+	 * The current time of this clock in nanoseconds.
+	 */
+	private long time;
+
+	/**
+	 * Creates a new virtual clock starting at time zero.
+	 */
+	public VirtualClock() {
+		time = 0;
+	}
+
+	public long nanoTime() {
+		return time;
+	}
+
+	/**
+	 * Moves this clock forward.
+	 *
+	 * @param nanos the number of nanoseconds to advance the clock by
+	 */
+	public void advance(long nanos) {
+		if (nanos < 0) {
+			throw new IllegalArgumentException(
+					"Cannot move a clock backwards.");
+		}
+		time += nanos;
+	}
+}